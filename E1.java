@@ -1,4 +1,4 @@
-/**  E1 demultiplexer, revision 14
+/**  E1 demultiplexer, revision 39
   *  Created reference implementation
   *  Added test and measurement code
   *  Added correctness test
@@ -23,10 +23,138 @@
   *    Added Unrolled_1_4:    Inner loop unrolled fully; outer loop unrolled by the factor of 4
   *    Added Unrolled_1_8:    Inner loop unrolled fully; outer loop unrolled by the factor of 8
   *    Added Unrolled_1_16:   Inner loop unrolled fully; outer loop unrolled by the factor of 16
+  *
+  *  Reworked measurement code:
+  *    Every implementation is measured in its own forked JVM, after warm-up and the correctness check
+  *    Results are reported in nanoseconds per frame and in megabytes per second
+  *    The destination is consumed after the timed loop so that the work cannot be optimised away
+  *
+  *  Started SWAR family (eight bytes per load and store):
+  *    Added Swar_8x8:        8x8 byte blocks read as longs, transposed in registers, written as longs
+  *
+  *  Started vector family (jdk.incubator.vector, see E1Vector.java):
+  *    Added Vector_Unzip:    Five levels of even/odd unzip across 32 vectors; species chosen at startup
+  *
+  *  Started off-heap family (BufferDemux: direct ByteBuffer source and destinations):
+  *    Added Buffer_Reference:        Reference over absolute get/put
+  *    Added Buffer_Unrolled_1:       Unrolled_1 over absolute get/put
+  *    Added Buffer_Swar_8x8:         Swar_8x8 over a byteBufferViewVarHandle
+  *    Added Buffer_Vector_Unzip:     Vector_Unzip reading and writing the buffers directly
+  *
+  *  Added capture file mode: java E1 -file <capture> <output-dir> [window-MB]
+  *    The capture is memory-mapped window by window and demultiplexed into 32 per-timeslot files
+  *
+  *  Added StreamingDemux: accepts chunks of any size, keeps the partial block and timeslot phase between calls
+  *
+  *  Added FrameAligner: G.706 frame alignment in front of StreamingDemux
+  *    FAS/NFAS/FAS hunt checks eight candidate offsets per 64-bit word
+  *    In-frame FAS monitoring; three consecutive errors declare loss of frame and restart the hunt
+  *
+  *  Added BitAligner: finds the octet boundary of a raw bitstream and realigns it with 64-bit shifts
+  *
+  *  Added Crc4_Swar_8x8: Swar_8x8 with CRC-4 of every sub-multiframe folded from the same 64-bit loads
+  *    CRC-4 multiframe alignment from the 001011 NFAS pattern; errors are counted only while aligned
+  *
+  *  Started multiplexer family (Mux: 32 channel rows interleaved back into one stream):
+  *    Added Mux_Reference:   Loop along the stream
+  *    Added Mux_Src_First:   Loop along each channel row, Dst_First_2 in reverse
+  *    Added Mux_Unrolled_1:  Mux_Src_First with the inner loop unrolled fully
+  *    Added Mux_Swar_8x8:    Swar_8x8 in reverse; the 8x8 transpose is its own inverse
+  *    Added Mux_Vector_Zip:  Vector_Unzip in reverse, five levels of two-vector zip (E1Vector.java)
+  *
+  *  Added runtime geometry (any number of timeslots and frames per buffer), chosen by demux_for ():
+  *    Added Param_Swar_8x8:  Swar_8x8 with the stride and frame count as fields; timeslots a multiple of 8
+  *    Added Param_Dst_First: Dst_First_2 with the stride and frame count as fields; any geometry
+  *
+  *  Added Kernel_Generator: unrolled kernels emitted as bytecode for any geometry and loaded as hidden classes
+  *    The unroll space (frames per step, rows per step, method per row) is searched by timing on this JVM
+  *    Shapes over the HotSpot huge-method limit are never tried
+  *    Without a search, demux_for () generates a default shape (up to 64 frames per step, a row per step);
+  *    Param_Swar_8x8 and Param_Dst_First remain only for geometries no shape fits
+  *
+  *  Added LinkGroupDemuxer: N links (63 on a channelized STM-1) split across a fixed pool of threads
+  *    Per-link and aggregate frames per second; the benchmark runs 63 links on 1, 2, 4 ... threads
+  *
+  *  Added batch entry point Demux.demux (byte[][] src, byte[][][] dst): K buffers per call
+  *    The default loops over demux (); Batch16_* and PerCall16_* compare it with 16 demux () calls
+  *    for Unrolled_1, Unrolled_1_16 and Swar_8x8
+  *
+  *  Started flat family (FlatDemux: one channel-major byte [NUM_TIMESLOTS * DST_SIZE] destination):
+  *    Added Flat_Dst_First:  Dst_First_2 writing at j * DST_SIZE
+  *    Added Flat_Unrolled_1: Unrolled_1 writing at j * DST_SIZE
+  *    Added Flat_Swar_8x8:   Swar_8x8 writing at j * DST_SIZE
+  *    Added Channel: read-only view of one channel of a flat destination
+  *
+  *  Added AdaptiveDemux: runs the fastest of implementations () on this CPU and JVM
+  *    Candidates are checked against Reference and timed once; the choice is kept in a profile file
+  *    (-DE1.profile, default ~/.e1-demux.properties) under the CPU model and JVM version
+  *
+  *  Added Masked_Swar_8x8: only the timeslots of a 32-bit mask are written, the rest of dst is not touched
+  *    Groups of eight with three or more selected rows are transposed, sparser rows are copied one by one
+  *    Fast paths: all timeslots (Swar_8x8) and all but TS0/TS16 (groups FF or FE stored without per-row tests)
+  *
+  *  Added Nx64_Demux: fractional E1, groups of timeslots each written interleaved into its own row in one pass
+  *    Contiguous groups are copied a long (or int) at a time per frame, scattered ones a byte at a time
+  *
+  *  Added CasExtractor: TS16 channel-associated signalling, from the TS16 row or straight from src
+  *    Multiframe alignment hunt and loss, ABCD state of the 30 channels, events only on change
+  *    A multiframe equal to the previous one is skipped with two 64-bit compares
+  *
+  *  Added HdlcDeframer: HDLC receiver for one demultiplexed timeslot (SS7, ISDN D channel)
+  *    Flags, aborts and zero deletion a byte at a time through one table; FCS-16 or FCS-32 by table
+  *    Frames go into buffers from a fixed Frame_Pool and are handed over to a listener; no allocation
+  *
+  *  Started PCM family (PcmDemux: 32 rows of linear short samples, G.711 decoded on the way):
+  *    Added Pcm_Dst_First:   Dst_First_2 through a 256-entry A-law or mu-law table
+  *    Added Pcm_Unrolled_1:  Unrolled_1 through the same table
+  *
+  *  Added Idle_Swar_8x8: Swar_8x8 that also returns a 32-bit mask of idle channels in the block
+  *    Idle means every byte is one idle code, or every sample is below an A-law or mu-law level
+  *
+  *  Added RingDemux: Swar_8x8 writing every timeslot straight into its own single-producer/single-consumer
+  *    Channel_Ring; padded indices, heads published once per batch of blocks, full rings drop instead of blocking
+  *
+  *  Added Pipeline: capture -> demux -> decode -> sink, one thread per stage, over one ring of preallocated Blocks
+  *    with a sequence per stage (as in the Disruptor); stages take whatever is ready up to a batch, capture waits
+  *    for the sink when the ring is full
+  *
+  *  Added ChannelFanout: demuxed voice rows (TS1-15, TS17-31) handed to consumers that block on a queue, either
+  *    one virtual thread per channel (JDK 21+, found by reflection) or a fixed pool of platform threads
   */
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Random;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public final class E1
 {
@@ -36,10 +164,56 @@ public final class E1
 
     public static final int ITERATIONS = 1000000;
     public static final int REPETITIONS = 5;
+    public static final int WARMUPS = 2;
+    public static final int FORKS = 2;
+    public static final int WINDOW_MB = 32;
+
+    static volatile int sink;
 
     interface Demux
     {
         public void demux (byte[] src, byte[][] dst);
+
+        /** Demultiplexes src [k] into dst [k] for every k; kernels may override it to run the batch in one loop */
+        public default void demux (byte[][] src, byte[][][] dst)
+        {
+            for (int k = 0; k < src.length; k++) {
+                demux (src [k], dst [k]);
+            }
+        }
+    }
+
+    /** Demux that reads src [off .. off + len) in place, so that a caller holding whole blocks inside a bigger
+      * array does not copy them out first; len is a multiple of NUM_TIMESLOTS * 8
+      */
+    interface OffsetDemux extends Demux
+    {
+        public void demux (byte[] src, int off, int len, byte[][] dst);
+    }
+
+    interface Mux
+    {
+        public void mux (byte[][] src, byte[] dst);
+    }
+
+    /** Demux into one array: channel j occupies dst [j * frames .. (j + 1) * frames), frames = src.length / NUM_TIMESLOTS */
+    interface FlatDemux
+    {
+        public void demux (byte[] src, byte[] dst);
+    }
+
+    /** Demux with G.711 decoding: dst [j][i] is the 16-bit linear sample of the byte src [i * NUM_TIMESLOTS + j] */
+    interface PcmDemux
+    {
+        public void demux (byte[] src, short[][] dst);
+    }
+
+    /** Off-heap variant of Demux: src is read from index 0 to its limit, dst rows are written from index 0.
+      * Positions, limits and byte orders of the buffers are left untouched.
+      */
+    interface BufferDemux
+    {
+        public void demux (ByteBuffer src, ByteBuffer[] dst);
     }
 
     static byte[] generate ()
@@ -55,6 +229,23 @@ public final class E1
         return new byte [NUM_TIMESLOTS][DST_SIZE];
     }
 
+    static ByteBuffer generate_direct ()
+    {
+        byte[] buf = generate ();
+        ByteBuffer src = ByteBuffer.allocateDirect (buf.length);
+        src.put (buf).clear ();
+        return src;
+    }
+
+    static ByteBuffer[] allocate_direct_dst ()
+    {
+        ByteBuffer[] dst = new ByteBuffer [NUM_TIMESLOTS];
+        for (int i = 0; i < NUM_TIMESLOTS; i++) {
+            dst [i] = ByteBuffer.allocateDirect (DST_SIZE);
+        }
+        return dst;
+    }
+
     static void check (Demux demux)
     {
         byte[] src = generate ();
@@ -69,183 +260,1913 @@ public final class E1
         }
     }
 
-    static void measure (Demux demux)
+    static void check (Demux demux, int timeslots, int frames)
     {
-        check (demux);
+        byte[] src = new byte [timeslots * frames];
+        new Random (5).nextBytes (src);
+        byte[][] dst = new byte [timeslots][frames];
+        demux.demux (src, dst);
+        for (int i = 0; i < src.length; i++) {
+            if (dst [i % timeslots][i / timeslots] != src [i]) {
+                throw new java.lang.RuntimeException ("Results not equal");
+            }
+        }
+    }
 
+    static void check_mux (Mux mux)
+    {
         byte[] src = generate ();
-        byte[][] dst = allocate_dst ();
+        byte[][] rows = allocate_dst ();
+        byte[] dst = new byte [SRC_SIZE];
+        new Reference ().demux (src, rows);
+        mux.mux (rows, dst);
+        if (! Arrays.equals (src, dst)) {
+            throw new java.lang.RuntimeException ("Results not equal");
+        }
+    }
 
-        System.out.print (demux.getClass ().getCanonicalName () + ":");
-     
-        for (int loop = 0; loop < REPETITIONS; loop ++) {
-            long t0 = System.currentTimeMillis ();
-            for (int i = 0; i < ITERATIONS; i++) {
-                demux.demux (src, dst);
+    static void check_buffer (BufferDemux demux)
+    {
+        byte[][] dst0 = allocate_dst ();
+        ByteBuffer[] dst = allocate_direct_dst ();
+        new Reference ().demux (generate (), dst0);
+        demux.demux (generate_direct (), dst);
+        for (int i = 0; i < NUM_TIMESLOTS; i++) {
+            byte[] d = new byte [DST_SIZE];
+            dst [i].get (0, d);
+            if (! Arrays.equals (dst0[i], d)) {
+                throw new java.lang.RuntimeException ("Results not equal");
             }
-            long t = System.currentTimeMillis () - t0;
-            System.out.print (" " + t);
         }
-        System.out.println ();
     }
 
-    static final class Reference implements Demux
+    static void check_flat (FlatDemux demux)
     {
-        public void demux (byte[] src, byte[][] dst)
-        {
-            assert src.length % NUM_TIMESLOTS == 0;
-
-            int dst_pos = 0;
-            int dst_num = 0;
-            for (byte b : src) {
-                dst [dst_num][dst_pos] = b;
-                if (++ dst_num == NUM_TIMESLOTS) {
-                    dst_num = 0;
-                    ++ dst_pos;
+        byte[] src = generate ();
+        byte[][] dst0 = allocate_dst ();
+        byte[] dst = new byte [SRC_SIZE];
+        new Reference ().demux (src, dst0);
+        demux.demux (src, dst);
+        Channel[] channels = Channel.all (dst, DST_SIZE);
+        for (int i = 0; i < NUM_TIMESLOTS; i++) {
+            if (! Arrays.equals (dst0[i], channels [i].to_array ())) {
+                throw new java.lang.RuntimeException ("Results not equal");
+            }
+            for (int k = 0; k < DST_SIZE; k++) {
+                if (channels [i].get (k) != dst0 [i][k]) {
+                    throw new java.lang.RuntimeException ("Channel view not equal");
                 }
             }
         }
     }
 
-    static final class Src_First_1 implements Demux
+    static void check_pcm (PcmDemux demux, short[] table)
     {
-        public void demux (byte[] src, byte[][] dst)
-        {
-            assert src.length % NUM_TIMESLOTS == 0;
-
-            int src_pos = 0;
-            int dst_pos = 0;
-            while (src_pos < src.length) {
-                for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
-                    dst [dst_num][dst_pos] = src [src_pos ++];
+        byte[] src = generate ();
+        byte[][] dst0 = allocate_dst ();
+        short[][] dst = new short [NUM_TIMESLOTS][DST_SIZE];
+        new Reference ().demux (src, dst0);
+        demux.demux (src, dst);
+        for (int i = 0; i < NUM_TIMESLOTS; i++) {
+            for (int k = 0; k < DST_SIZE; k++) {
+                if (dst [i][k] != table [dst0 [i][k] & 0xFF]) {
+                    throw new java.lang.RuntimeException ("Results not equal");
                 }
-                ++ dst_pos;
             }
         }
+        // Reference points of G.711: A-law 0xD5 and mu-law 0xFF are the smallest positive codes
+        if (G711.alaw (0xD5) != 8 || G711.alaw (0x55) != -8 || G711.alaw (0xAA) != 32256
+            || G711.ulaw (0xFF) != 0 || G711.ulaw (0x80) != 32124 || G711.ulaw (0x00) != -32124) {
+            throw new java.lang.RuntimeException ("G.711 tables wrong");
+        }
     }
 
-    static final class Src_First_2 implements Demux
+    static void check_streaming (StreamingDemux.Factory factory)
     {
-        public void demux (byte[] src, byte[][] dst)
-        {
-            assert src.length % NUM_TIMESLOTS == 0;
-            
-            for (int dst_pos = 0; dst_pos < src.length / NUM_TIMESLOTS; ++ dst_pos) {
-                for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
-                    dst [dst_num][dst_pos] = src [dst_pos * NUM_TIMESLOTS + dst_num];
-                }
+        byte[] src = new byte [SRC_SIZE * 8 + NUM_TIMESLOTS * 5 + 7];
+        Random r = new Random (1);
+        r.nextBytes (src);
+
+        int frames = src.length / NUM_TIMESLOTS;
+        byte[][] dst0 = new byte [NUM_TIMESLOTS][frames];
+        new Reference ().demux (Arrays.copyOf (src, frames * NUM_TIMESLOTS), dst0);
+
+        ByteArrayOutputStream[] rows = new ByteArrayOutputStream [NUM_TIMESLOTS];
+        for (int i = 0; i < NUM_TIMESLOTS; i++) {
+            rows [i] = new ByteArrayOutputStream ();
+        }
+        StreamingDemux demux = factory.create ((dst, n) -> {
+            for (int i = 0; i < NUM_TIMESLOTS; i++) {
+                rows [i].write (dst [i], 0, n);
+            }
+        });
+        for (int pos = 0; pos < src.length; ) {
+            int len = Math.min (src.length - pos, 1 + r.nextInt (SRC_SIZE * 2));
+            demux.write (src, pos, len);
+            pos += len;
+        }
+        demux.flush ();
+        if (demux.phase () != src.length % NUM_TIMESLOTS) {
+            throw new java.lang.RuntimeException ("Wrong phase");
+        }
+        for (int i = 0; i < NUM_TIMESLOTS; i++) {
+            if (! Arrays.equals (dst0[i], rows[i].toByteArray ())) {
+                throw new java.lang.RuntimeException ("Results not equal");
             }
         }
     }
 
-    static final class Src_First_3 implements Demux
+    /** Frames with valid TS0 (FAS in even frames, NFAS in odd ones); payload never imitates FAS */
+    static byte[] generate_framed (int frames, Random r)
     {
-        public void demux (byte[] src, byte[][] dst)
-        {
-            assert src.length % NUM_TIMESLOTS == 0;
+        byte[] buf = new byte [frames * NUM_TIMESLOTS];
+        r.nextBytes (buf);
+        for (int i = 0; i < buf.length; i++) {
+            if ((buf [i] & 0x7F) == FrameAligner.FAS) buf [i] ^= 1;
+        }
+        for (int f = 0; f < frames; f++) {
+            buf [f * NUM_TIMESLOTS] = (byte) ((f & 1) == 0 ? 0x80 | FrameAligner.FAS : 0xDF);
+        }
+        return buf;
+    }
 
-            for (int i = 0; i < src.length; i++) {
-                dst [i % NUM_TIMESLOTS][i / NUM_TIMESLOTS] = src [i];
+    static void check_aligner ()
+    {
+        Random r = new Random (2);
+        byte[] garbage = generate_framed (2, r);
+        byte[] region1 = generate_framed (DST_SIZE * 4, r);
+        byte[] region2 = generate_framed (DST_SIZE * 4, r);
+
+        List<byte[]> ts0 = new ArrayList<byte[]> ();
+        List<byte[]> rows = new ArrayList<byte[]> ();
+        StreamingDemux out = new StreamingDemux (new Unrolled_1 (), (dst, n) -> {
+            ts0.add (Arrays.copyOf (dst [0], n));
+            rows.add (Arrays.copyOf (dst [1], n));
+        });
+        FrameAligner aligner = new FrameAligner (out);
+        aligner.write (garbage, 37, garbage.length - 37);
+        for (int pos = 0; pos < region1.length; pos += 1000) {
+            aligner.write (region1, pos, Math.min (1000, region1.length - pos));
+        }
+        if (! aligner.in_frame () || aligner.losses () != 0 || rows.size () != 4) {
+            throw new java.lang.RuntimeException ("Alignment not found");
+        }
+        byte[][] dst0 = new byte [NUM_TIMESLOTS][region1.length / NUM_TIMESLOTS];
+        new Reference ().demux (region1, dst0);
+        for (int i = 0; i < 4; i++) {
+            if (! Arrays.equals (Arrays.copyOfRange (dst0 [1], i * DST_SIZE, (i + 1) * DST_SIZE), rows.get (i))) {
+                throw new java.lang.RuntimeException ("Results not equal");
+            }
+        }
+
+        ts0.clear ();
+        aligner.write (region2, 5, region2.length - 5);
+        out.flush ();
+        if (! aligner.in_frame () || aligner.losses () != 1) {
+            throw new java.lang.RuntimeException ("Slip not detected");
+        }
+        byte[] last = ts0.get (ts0.size () - 1);
+        for (int f = 0; f < last.length; f++) {
+            if (((f & 1) == 0) != ((last [f] & 0x7F) == FrameAligner.FAS)) {
+                throw new java.lang.RuntimeException ("Wrong alignment after slip");
             }
         }
     }
 
-    static final class Dst_First_1 implements Demux
+    /** The stream's bits (MSB first) rotated right by shift bits, so that repeating it gives a continuous stream */
+    static byte[] rotate_bits (byte[] buf, int shift)
     {
-        public void demux (byte[] src, byte[][] dst)
-        {
-            assert src.length % NUM_TIMESLOTS == 0;
+        byte[] bits = new byte [buf.length];
+        for (int i = 0; i < buf.length; i++) {
+            int prev = buf [(i + buf.length - 1) % buf.length] & 0xFF;
+            bits [i] = (byte) ((prev << (8 - shift) | (buf [i] & 0xFF) >>> shift) & 0xFF);
+        }
+        return bits;
+    }
 
-            for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
-                for (int dst_pos = 0; dst_pos < src.length / NUM_TIMESLOTS; ++ dst_pos) {
-                    dst [dst_num][dst_pos] = src [dst_pos * NUM_TIMESLOTS + dst_num];
+    static void check_bit_aligner ()
+    {
+        Random r = new Random (3);
+        for (int shift = 0; shift < 8; shift++) {
+            byte[] bits = rotate_bits (generate_framed (DST_SIZE * 4, r), shift);
+            byte[] noise = new byte [5000];                                      // hunted through in many writes
+            r.nextBytes (noise);
+            int chunk = new int [] {999, 16, 1, 2049} [shift % 4];
+            List<byte[]> ts0 = new ArrayList<byte[]> ();
+            BitAligner aligner = new BitAligner (new FrameAligner (new StreamingDemux (new Unrolled_1 (),
+                                                 (dst, n) -> ts0.add (Arrays.copyOf (dst [0], n)))));
+            for (int pos = 0; pos < noise.length; pos += chunk) {
+                aligner.write (noise, pos, Math.min (chunk, noise.length - pos));
+            }
+            for (int loop = 0; loop < 3; loop++) {
+                for (int pos = 0; pos < bits.length; pos += chunk) {
+                    aligner.write (bits, pos, Math.min (chunk, bits.length - pos));
+                }
+            }
+            if (! aligner.in_frame () || aligner.shift () != shift) {
+                throw new java.lang.RuntimeException ("Bit alignment not found");
+            }
+            byte[] last = ts0.get (ts0.size () - 1);
+            for (int f = 0; f < last.length; f++) {
+                if (((f & 1) == 0) != ((last [f] & 0x7F) == FrameAligner.FAS)) {
+                    throw new java.lang.RuntimeException ("Wrong bit alignment");
                 }
             }
         }
     }
 
-    static final class Dst_First_2 implements Demux
+    /** Bitwise CRC-4 (x^4 + x + 1) of a sub-multiframe with its C bits taken as zero, as in G.704 2.3.3.5 */
+    static int crc4 (byte[] src, int from)
     {
-        public void demux (byte[] src, byte[][] dst)
-        {
-            assert src.length % NUM_TIMESLOTS == 0;
+        int crc = 0;
+        for (int i = 0; i < Crc4_Swar_8x8.SMF_SIZE; i++) {
+            int b = src [from + i] & 0xFF;
+            if (i % (2 * NUM_TIMESLOTS) == 0) b &= 0x7F;
+            for (int bit = 7; bit >= 0; bit--) {
+                int top = (crc >> 3) ^ (b >> bit) & 1;
+                crc = (crc << 1) & 0xF;
+                if (top != 0) crc ^= 0x3;
+            }
+        }
+        return crc;
+    }
 
-            int dst_size = src.length / NUM_TIMESLOTS;
-            for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
-                byte [] d = dst [dst_num];
-                int src_pos = dst_num;
-                for (int dst_pos = 0; dst_pos < dst_size; ++ dst_pos) {
-                    d[dst_pos] = src[src_pos];
-                    src_pos += NUM_TIMESLOTS;
-                }
+    /** Puts the multiframe alignment signal into the NFAS frames of multiframes starting at frame start (mod 16),
+      * E bits set, and then the CRC-4 of each whole sub-multiframe into the C bits of the next one
+      */
+    static void insert_crc4 (byte[] src, int start)
+    {
+        for (int f = 1; f < src.length / NUM_TIMESLOTS; f += 2) {
+            int n = (f - start % 16 + 16) % 16 / 2;
+            int bit = n < 6 ? Crc4_Swar_8x8.MFAS >> 5 - n & 1 : 1;
+            src [f * NUM_TIMESLOTS] = (byte) (src [f * NUM_TIMESLOTS] & 0x7F | bit << 7);
+        }
+        int smf = Crc4_Swar_8x8.SMF_SIZE;
+        for (int pos = start % 8 * NUM_TIMESLOTS + smf; pos + smf <= src.length; pos += smf) {
+            int crc = crc4 (src, pos - smf);
+            for (int i = 0; i < 4; i++) {
+                int p = pos + i * 2 * NUM_TIMESLOTS;
+                src [p] = (byte) (src [p] & 0x7F | ((crc >> (3 - i)) & 1) << 7);
             }
         }
     }
 
-    static final class Dst_First_3 implements Demux
+    static void check_crc4 ()
     {
-        public void demux (byte[] src, byte[][] dst)
-        {
-            assert src.length == NUM_TIMESLOTS * DST_SIZE;
+        check (new Crc4_Swar_8x8 ());
 
-            for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
-                for (int dst_pos = 0; dst_pos < DST_SIZE; ++ dst_pos) {
-                    dst [dst_num][dst_pos] = src [dst_pos * NUM_TIMESLOTS + dst_num];
+        // Alignment takes the first two whole multiframes; the sub-multiframes after them are checked
+        for (int start : new int [] {0, 6, 10}) {
+            byte[] stream = generate_framed (DST_SIZE * 4, new Random (4));
+            insert_crc4 (stream, start);
+            int checked = (stream.length / NUM_TIMESLOTS - start % 16 - 32) / Crc4_Swar_8x8.SMF_FRAMES;
+            Crc4_Swar_8x8 demux = new Crc4_Swar_8x8 ();
+            byte[][] dst = allocate_dst ();
+            for (int pos = 0; pos < stream.length; pos += SRC_SIZE) {
+                demux.demux (Arrays.copyOfRange (stream, pos, pos + SRC_SIZE), dst);
+            }
+            if (! demux.multiframe_aligned () || demux.crc_errors () != 0 || demux.submultiframes () != checked) {
+                throw new java.lang.RuntimeException ("Unexpected CRC-4 errors, multiframe at frame " + start);
+            }
+            stream [SRC_SIZE + 100] ^= 4;
+            demux = new Crc4_Swar_8x8 ();
+            for (int pos = 0; pos < stream.length; pos += SRC_SIZE) {
+                demux.demux (Arrays.copyOfRange (stream, pos, pos + SRC_SIZE), dst);
+            }
+            if (demux.crc_errors () != 1) {
+                throw new java.lang.RuntimeException ("CRC-4 error not detected, multiframe at frame " + start);
+            }
+        }
+
+        // Without the multiframe alignment signal nothing is checked, so nothing is counted
+        byte[] stream = generate_framed (DST_SIZE * 4, new Random (4));
+        Crc4_Swar_8x8 demux = new Crc4_Swar_8x8 ();
+        byte[][] dst = allocate_dst ();
+        for (int pos = 0; pos < stream.length; pos += SRC_SIZE) {
+            demux.demux (Arrays.copyOfRange (stream, pos, pos + SRC_SIZE), dst);
+        }
+        if (demux.multiframe_aligned () || demux.submultiframes () != 0 || demux.crc_errors () != 0) {
+            throw new java.lang.RuntimeException ("CRC-4 checked without multiframe alignment");
+        }
+    }
+
+    static void check_link_group ()
+    {
+        int links = 5;
+        Random random = new Random (6);
+        byte[][] src = new byte [links][SRC_SIZE];
+        for (byte[] s : src) random.nextBytes (s);
+        try (LinkGroupDemuxer group = new LinkGroupDemuxer (links, 3, () -> demux_for (NUM_TIMESLOTS, DST_SIZE))) {
+            group.demux (src);
+            group.demux (src);
+            byte[][] dst0 = allocate_dst ();
+            for (int link = 0; link < links; link++) {
+                new Reference ().demux (src [link], dst0);
+                for (int i = 0; i < NUM_TIMESLOTS; i++) {
+                    if (! Arrays.equals (dst0 [i], group.dst (link) [i])) {
+                        throw new java.lang.RuntimeException ("Results not equal on link " + link);
+                    }
+                }
+                if (group.frames (link) != 2 * DST_SIZE) {
+                    throw new java.lang.RuntimeException ("Wrong frame count on link " + link);
                 }
             }
+            if (group.frames () != 2L * DST_SIZE * links) {
+                throw new java.lang.RuntimeException ("Wrong aggregate frame count");
+            }
         }
     }
 
-    static final class Unrolled_1 implements Demux
+    static void check_batch (Demux demux)
     {
-        public void demux (byte[] src, byte[][] dst)
-        {
-            assert NUM_TIMESLOTS == 32;
-            assert DST_SIZE == 64;
-            assert src.length == NUM_TIMESLOTS * DST_SIZE;
+        int count = 5;
+        Random random = new Random (7);
+        byte[][] src = new byte [count][SRC_SIZE];
+        for (byte[] s : src) random.nextBytes (s);
+        byte[][][] dst = new byte [count][][];
+        for (int k = 0; k < count; k++) dst [k] = allocate_dst ();
+        demux.demux (src, dst);
+        byte[][] dst0 = allocate_dst ();
+        for (int k = 0; k < count; k++) {
+            new Reference ().demux (src [k], dst0);
+            for (int i = 0; i < NUM_TIMESLOTS; i++) {
+                if (! Arrays.equals (dst0 [i], dst [k][i])) {
+                    throw new java.lang.RuntimeException ("Results not equal in buffer " + k);
+                }
+            }
+        }
+    }
 
+    static void check_masked ()
+    {
+        byte[] src = generate ();
+        byte[][] dst0 = allocate_dst ();
+        new Reference ().demux (src, dst0);
+        Random random = new Random (8);
+        int[] masks = new int [20];
+        masks [0] = Masked_Swar_8x8.ALL;
+        masks [1] = Masked_Swar_8x8.ALL_BUT_TS0_TS16;
+        masks [2] = 0;
+        masks [3] = 1 << 16;
+        masks [4] = 0x7FFEFFFE;                                                  // TS24-TS31 leaves the dense path
+        masks [5] = 0xFFFF0000;
+        for (int n = 6; n < masks.length; n++) {
+            masks [n] = (n & 1) == 0 ? random.nextInt () : random.nextInt () & random.nextInt () & random.nextInt ();
+        }
+        if (new Masked_Swar_8x8 (Masked_Swar_8x8.ALL_BUT_TS0_TS16).dense_groups () != NUM_TIMESLOTS / 8) {
+            throw new java.lang.RuntimeException ("All but TS0/TS16 not on the dense path");
+        }
+        for (int mask : masks) {
+            byte[][] dst = new byte [NUM_TIMESLOTS][];
             for (int j = 0; j < NUM_TIMESLOTS; j++) {
-                final byte[] d = dst[j];
-                d[ 0] = src[j+32* 0]; d[ 1] = src[j+32* 1]; d[ 2] = src[j+32* 2]; d[ 3] = src[j+32* 3];
-                d[ 4] = src[j+32* 4]; d[ 5] = src[j+32* 5]; d[ 6] = src[j+32* 6]; d[ 7] = src[j+32* 7];
-                d[ 8] = src[j+32* 8]; d[ 9] = src[j+32* 9]; d[10] = src[j+32*10]; d[11] = src[j+32*11];
-                d[12] = src[j+32*12]; d[13] = src[j+32*13]; d[14] = src[j+32*14]; d[15] = src[j+32*15];
-                d[16] = src[j+32*16]; d[17] = src[j+32*17]; d[18] = src[j+32*18]; d[19] = src[j+32*19];
-                d[20] = src[j+32*20]; d[21] = src[j+32*21]; d[22] = src[j+32*22]; d[23] = src[j+32*23];
-                d[24] = src[j+32*24]; d[25] = src[j+32*25]; d[26] = src[j+32*26]; d[27] = src[j+32*27];
-                d[28] = src[j+32*28]; d[29] = src[j+32*29]; d[30] = src[j+32*30]; d[31] = src[j+32*31];
-                d[32] = src[j+32*32]; d[33] = src[j+32*33]; d[34] = src[j+32*34]; d[35] = src[j+32*35];
-                d[36] = src[j+32*36]; d[37] = src[j+32*37]; d[38] = src[j+32*38]; d[39] = src[j+32*39];
-                d[40] = src[j+32*40]; d[41] = src[j+32*41]; d[42] = src[j+32*42]; d[43] = src[j+32*43];
-                d[44] = src[j+32*44]; d[45] = src[j+32*45]; d[46] = src[j+32*46]; d[47] = src[j+32*47];
-                d[48] = src[j+32*48]; d[49] = src[j+32*49]; d[50] = src[j+32*50]; d[51] = src[j+32*51];
-                d[52] = src[j+32*52]; d[53] = src[j+32*53]; d[54] = src[j+32*54]; d[55] = src[j+32*55];
-                d[56] = src[j+32*56]; d[57] = src[j+32*57]; d[58] = src[j+32*58]; d[59] = src[j+32*59];
-                d[60] = src[j+32*60]; d[61] = src[j+32*61]; d[62] = src[j+32*62]; d[63] = src[j+32*63];
+                if ((mask >>> j & 1) != 0) dst [j] = new byte [DST_SIZE];
+            }
+            new Masked_Swar_8x8 (mask).demux (src, dst);
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                if (dst [j] != null && ! Arrays.equals (dst0 [j], dst [j])) {
+                    throw new java.lang.RuntimeException ("Results not equal for mask " + Integer.toHexString (mask));
+                }
             }
         }
     }
 
-    static final class Unrolled_2_Full implements Demux
+    static void check_nx64 ()
     {
-        public void demux (byte[] src, byte[][] dst)
-        {
-            assert NUM_TIMESLOTS == 32;
-            assert DST_SIZE == 64;
-            assert src.length == NUM_TIMESLOTS * DST_SIZE;
+        byte[] src = generate ();
+        int[][][] layouts = {
+            {Nx64_Demux.range (1, 8)},
+            {Nx64_Demux.range (1, 15), Nx64_Demux.range (17, 15)},
+            {Nx64_Demux.range (0, 32)},
+            {Nx64_Demux.range (2, 4), Nx64_Demux.range (9, 13), {30, 3, 7}, {5}},
+            {Nx64_Demux.range (24, 6), Nx64_Demux.range (29, 3), Nx64_Demux.range (16, 9)},
+        };
+        for (int[][] groups : layouts) {
+            Nx64_Demux demux = new Nx64_Demux (groups);
+            byte[][] dst = new byte [groups.length][];
+            for (int g = 0; g < groups.length; g++) dst [g] = new byte [DST_SIZE * groups [g].length];
+            demux.demux (src, dst);
+            for (int g = 0; g < groups.length; g++) {
+                for (int f = 0; f < DST_SIZE; f++) {
+                    for (int i = 0; i < groups [g].length; i++) {
+                        if (dst [g][f * groups [g].length + i] != src [f * NUM_TIMESLOTS + groups [g][i]]) {
+                            throw new java.lang.RuntimeException ("Results not equal in group " + g);
+                        }
+                    }
+                }
+            }
+        }
+    }
 
-            byte[] d;
-            d = dst[0];
-            d = dst[0];
-            d[ 0] = src[   0]; d[ 1] = src[  32]; d[ 2] = src[  64]; d[ 3] = src[  96];
-            d[ 4] = src[ 128]; d[ 5] = src[ 160]; d[ 6] = src[ 192]; d[ 7] = src[ 224];
-            d[ 8] = src[ 256]; d[ 9] = src[ 288]; d[10] = src[ 320]; d[11] = src[ 352];
-            d[12] = src[ 384]; d[13] = src[ 416]; d[14] = src[ 448]; d[15] = src[ 480];
-            d[16] = src[ 512]; d[17] = src[ 544]; d[18] = src[ 576]; d[19] = src[ 608];
-            d[20] = src[ 640]; d[21] = src[ 672]; d[22] = src[ 704]; d[23] = src[ 736];
-            d[24] = src[ 768]; d[25] = src[ 800]; d[26] = src[ 832]; d[27] = src[ 864];
-            d[28] = src[ 896]; d[29] = src[ 928]; d[30] = src[ 960]; d[31] = src[ 992];
-            d[32] = src[1024]; d[33] = src[1056]; d[34] = src[1088]; d[35] = src[1120];
+    /** TS16 of multiframes * 16 frames after a short unaligned prefix; channel c has ABCD (c % 15) + 1 except for
+      * channels 7 and 22, which change in multiframe 3 */
+    static byte[] generate_cas (int multiframes)
+    {
+        int prefix = 5;
+        byte[] ts16 = new byte [prefix + multiframes * CasExtractor.MF_FRAMES];
+        Arrays.fill (ts16, 0, prefix, (byte) 0xFF);
+        for (int m = 0; m < multiframes; m++) {
+            int p = prefix + m * CasExtractor.MF_FRAMES;
+            ts16 [p] = 0x0B;
+            for (int n = 1; n < CasExtractor.MF_FRAMES; n++) {
+                int a = n % 15 + 1;
+                int b = (n + 15) % 15 + 1;
+                if (m >= 3 && n == 7) {
+                    a = 0x9;
+                    b = 0x3;
+                }
+                ts16 [p + n] = (byte) (a << 4 | b);
+            }
+        }
+        return ts16;
+    }
+
+    static void check_cas ()
+    {
+        byte[] ts16 = generate_cas (8);
+        List<String> events = new ArrayList<String> ();
+        CasExtractor cas = new CasExtractor ((c, old, abcd) -> events.add (c + ":" + old + ">" + abcd));
+        Random random = new Random (9);
+        for (int pos = 0; pos < ts16.length; ) {
+            int n = Math.min (ts16.length - pos, 1 + random.nextInt (40));
+            cas.write (ts16, pos, n);
+            pos += n;
+        }
+        if (! cas.in_multiframe () || events.size () != CasExtractor.CHANNELS + 2
+            || ! events.get (CasExtractor.CHANNELS).equals ("7:8>9") || ! events.get (CasExtractor.CHANNELS + 1).equals ("22:8>3")) {
+            throw new java.lang.RuntimeException ("Unexpected CAS events " + events);
+        }
+
+        byte[] src = new byte [ts16.length * NUM_TIMESLOTS];
+        random.nextBytes (src);
+        for (int f = 0; f < ts16.length; f++) src [f * NUM_TIMESLOTS + 16] = ts16 [f];
+        events.clear ();
+        CasExtractor direct = new CasExtractor ((c, old, abcd) -> events.add (c + ":" + old + ">" + abcd));
+        direct.write_frames (src, 0, ts16.length);
+        if (events.size () != CasExtractor.CHANNELS + 2 || direct.abcd (7) != 9 || direct.abcd (22) != 3) {
+            throw new java.lang.RuntimeException ("Unexpected CAS events from src " + events);
+        }
+
+        ts16 [5 + 4 * CasExtractor.MF_FRAMES] = (byte) 0xFF;
+        ts16 [5 + 5 * CasExtractor.MF_FRAMES] = (byte) 0xFF;
+        events.clear ();
+        CasExtractor lossy = new CasExtractor ((c, old, abcd) -> events.add (c + ":" + old + ">" + abcd));
+        lossy.write (ts16, 0, 5 + 5 * CasExtractor.MF_FRAMES + 1);
+        if (lossy.in_multiframe () || lossy.losses () != 1 || lossy.abcd (7) != -1) {
+            throw new java.lang.RuntimeException ("Multiframe loss not detected");
+        }
+        events.clear ();
+        lossy.write (ts16, 5 + 5 * CasExtractor.MF_FRAMES + 1, ts16.length - 5 - 5 * CasExtractor.MF_FRAMES - 1);
+        if (! lossy.in_multiframe () || events.size () < CasExtractor.CHANNELS || ! events.get (0).startsWith ("1:-1>")) {
+            throw new java.lang.RuntimeException ("Multiframe alignment not recovered " + events);
+        }
+    }
+
+    /** HDLC bitstream, least significant bit first: each payload between flags, with zero insertion and its FCS;
+      * the FCS of payload number bad is spoilt. The last byte is completed with flags that share their zeros (seven
+      * bits each), so that streams may be repeated back to back. */
+    static byte[] hdlc_encode (List<byte[]> payloads, int fcs_bits, int bad)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream ();
+        int[] acc = new int [2];                                                 // bits, count
+        java.util.function.IntConsumer bit = b -> {
+            acc [0] |= b << acc [1];
+            if (++ acc [1] == 8) {
+                out.write (acc [0]);
+                acc [0] = acc [1] = 0;
+            }
+        };
+        Runnable flag = () -> {
+            for (int i = 0; i < 8; i++) bit.accept (0x7E >>> i & 1);
+        };
+        flag.run ();
+        for (int n = 0; n < payloads.size (); n++) {
+            byte[] p = payloads.get (n);
+            int fcs = fcs_bits == 32 ? ~HdlcDeframer.fcs32 (0xFFFFFFFF, p, 0, p.length)
+                                     : ~HdlcDeframer.fcs16 (0xFFFF, p, 0, p.length) & 0xFFFF;
+            if (n == bad) fcs ^= 1;
+            byte[] frame = Arrays.copyOf (p, p.length + fcs_bits / 8);
+            for (int i = 0; i < fcs_bits / 8; i++) frame [p.length + i] = (byte) (fcs >>> 8 * i);
+            int ones = 0;
+            for (byte b : frame) {
+                for (int i = 0; i < 8; i++) {
+                    int v = b >>> i & 1;
+                    bit.accept (v);
+                    ones = v == 1 ? ones + 1 : 0;
+                    if (ones == 5) {
+                        bit.accept (0);
+                        ones = 0;
+                    }
+                }
+            }
+            flag.run ();
+        }
+        while (acc [1] != 0) {
+            for (int i = 1; i < 8; i++) bit.accept (0x7E >>> i & 1);
+        }
+        return out.toByteArray ();
+    }
+
+    static void check_hdlc ()
+    {
+        for (int fcs_bits : new int [] {16, 32}) {
+            Random random = new Random (10);
+            List<byte[]> payloads = new ArrayList<byte[]> ();
+            for (int n = 0; n < 200; n++) {
+                byte[] p = new byte [1 + random.nextInt (n % 10 == 0 ? 300 : 20)];
+                random.nextBytes (p);
+                if (n % 7 == 0) Arrays.fill (p, (byte) 0xFF);
+                payloads.add (p);
+            }
+            byte[] stream = hdlc_encode (payloads, fcs_bits, 50);
+            HdlcDeframer.Frame_Pool pool = new HdlcDeframer.Frame_Pool (4, 400);
+            List<byte[]> received = new ArrayList<byte[]> ();
+            HdlcDeframer hdlc = new HdlcDeframer (fcs_bits, pool, f -> {
+                received.add (Arrays.copyOf (f.data, f.length));
+                pool.release (f);
+            });
+            for (int pos = 0; pos < stream.length; ) {
+                int n = Math.min (stream.length - pos, 1 + random.nextInt (DST_SIZE));
+                hdlc.write (stream, pos, n);
+                pos += n;
+            }
+            payloads.remove (50);
+            if (hdlc.fcs_errors () != 1 || hdlc.frames () != payloads.size () || hdlc.aborts () != 0
+                || hdlc.overruns () != 0 || hdlc.bad_length () != 0 || pool.available () != 4) {
+                throw new java.lang.RuntimeException ("Unexpected HDLC counters with FCS-" + fcs_bits);
+            }
+            for (int n = 0; n < payloads.size (); n++) {
+                if (! Arrays.equals (payloads.get (n), received.get (n))) {
+                    throw new java.lang.RuntimeException ("HDLC frame " + n + " not equal with FCS-" + fcs_bits);
+                }
+            }
+
+            HdlcDeframer.Frame_Pool small = new HdlcDeframer.Frame_Pool (2, 400);
+            HdlcDeframer kept = new HdlcDeframer (fcs_bits, small, f -> {});     // never releases
+            kept.write (stream, 0, stream.length);
+            if (kept.frames () != 2 || kept.overruns () == 0) {
+                throw new java.lang.RuntimeException ("HDLC pool exhaustion not reported");
+            }
+        }
+
+        byte[] stream = hdlc_encode (Arrays.asList (new byte [10], new byte [10]), 16, -1);
+        stream [4] = (byte) 0xFF;                                                // eight ones inside the first frame
+        HdlcDeframer aborted = new HdlcDeframer (16, new HdlcDeframer.Frame_Pool (1, 64), f -> {});
+        aborted.write (stream, 0, stream.length);
+        if (aborted.aborts () != 1 || aborted.frames () != 1) {
+            throw new java.lang.RuntimeException ("HDLC abort not detected");
+        }
+    }
+
+    static void check_idle ()
+    {
+        check (Idle_Swar_8x8.alaw (2));
+        byte[] src = generate ();
+        int[] idle_codes = {0xD5, 0x55, 0x54, 0xD4, 0xFF, 0x56, 0xD5};
+        for (int f = 0; f < DST_SIZE; f++) {
+            for (int j = 0; j < idle_codes.length; j++) src [f * NUM_TIMESLOTS + 3 + j] = (byte) idle_codes [j];
+            src [f * NUM_TIMESLOTS + 20] = (byte) 0xFF;
+            src [f * NUM_TIMESLOTS + 21] = (byte) (f == 63 ? 0xFE : 0xFF);
+        }
+        byte[][] dst = allocate_dst ();
+        int alaw = Idle_Swar_8x8.alaw (2).demux_idle (src, dst);
+        int code = Idle_Swar_8x8.idle_code (0xFF).demux_idle (src, dst);
+        int ulaw = Idle_Swar_8x8.ulaw (2).demux_idle (src, dst);
+        if (alaw != (0xF << 3 | 1 << 9) || code != (1 << 7 | 1 << 20) || ulaw != (1 << 7 | 1 << 20 | 1 << 21)) {
+            throw new java.lang.RuntimeException ("Wrong idle masks " + Integer.toHexString (alaw) + " "
+                                                  + Integer.toHexString (code) + " " + Integer.toHexString (ulaw));
+        }
+    }
+
+    static void check_rings ()
+    {
+        Random random = new Random (11);
+        int blocks = 10;
+        byte[][] src = new byte [blocks][SRC_SIZE];
+        for (byte[] b : src) random.nextBytes (b);
+        RingDemux demux = new RingDemux (4 * DST_SIZE, 3);
+        byte[][] out = new byte [NUM_TIMESLOTS][blocks * DST_SIZE];
+        int[] got = new int [NUM_TIMESLOTS];
+        for (int k = 0; k < blocks; k++) {
+            demux.demux (src [k]);
+            if (k % 2 == 1) {
+                for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                    if (j == 5) continue;                                        // never read: overruns
+                    got [j] += demux.ring (j).read (out [j], got [j], out [j].length - got [j]);
+                }
+            }
+        }
+        demux.flush ();
+        byte[][] dst0 = allocate_dst ();
+        for (int j = 0; j < NUM_TIMESLOTS; j++) {
+            if (j == 5) continue;
+            got [j] += demux.ring (j).read (out [j], got [j], out [j].length - got [j]);
+            if (got [j] != blocks * DST_SIZE || demux.overruns (j) != 0) {
+                throw new java.lang.RuntimeException ("Ring " + j + " lost data");
+            }
+        }
+        for (int k = 0; k < blocks; k++) {
+            new Reference ().demux (src [k], dst0);
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                if (j != 5 && ! Arrays.equals (dst0 [j], Arrays.copyOfRange (out [j], k * DST_SIZE, (k + 1) * DST_SIZE))) {
+                    throw new java.lang.RuntimeException ("Ring " + j + " not equal in block " + k);
+                }
+            }
+        }
+        if (demux.overruns (5) != blocks - 4) {
+            throw new java.lang.RuntimeException ("Ring overruns not counted");
+        }
+    }
+
+    static void check_pipeline () throws InterruptedException
+    {
+        int blocks = 300;
+        int links = 3;
+        byte[][] expected = allocate_dst ();
+        int[] seen = new int [1];
+        Pipeline.Source source = block -> {
+            if (block.seq == blocks) return false;
+            new Random (block.seq).nextBytes (block.src);
+            return true;
+        };
+        Pipeline.Sink sink = block -> {
+            byte[] src = new byte [SRC_SIZE];
+            new Random (block.seq).nextBytes (src);
+            new Reference ().demux (src, expected);
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                for (int i = 0; i < DST_SIZE; i++) {
+                    if (block.pcm [j][i] != G711.ALAW [expected [j][i] & 0xFF]) {
+                        throw new java.lang.RuntimeException ("Pipeline: block " + block.seq + " not equal");
+                    }
+                }
+            }
+            if (block.seq != seen [0] ++ || block.link != block.seq % links) {
+                throw new java.lang.RuntimeException ("Pipeline: block " + block.seq + " out of order");
+            }
+        };
+        Pipeline pipeline = new Pipeline (8, 3, links, new Swar_8x8 (), G711.ALAW, source, sink);
+        pipeline.drain ();
+        if (pipeline.blocks () != blocks || seen [0] != blocks) {
+            throw new java.lang.RuntimeException ("Pipeline: " + pipeline.blocks () + " blocks out of " + blocks);
+        }
+
+        // A failing stage must stop the pipeline and surface in drain (), not leave the others waiting
+        Pipeline failing = new Pipeline (8, 3, links, new Swar_8x8 (), G711.ALAW, source, block -> {
+            if (block.seq == 10) throw new IllegalStateException ("sink failure");
+        });
+        try {
+            failing.drain ();
+            throw new java.lang.RuntimeException ("Pipeline: sink failure not reported");
+        } catch (IllegalStateException e) {
+            if (! e.getMessage ().equals ("sink failure")) throw e;
+        }
+    }
+
+    static void check_fanout () throws InterruptedException
+    {
+        int links = 3, blocks = 20;
+        Random random = new Random (5);
+        byte[][][] src = new byte [blocks][links][SRC_SIZE];
+        for (byte[][] b : src) for (byte[] l : b) random.nextBytes (l);
+        for (int mode = 0; mode < 2; mode++) {
+            int[][] received = new int [links][NUM_TIMESLOTS];
+            byte[][] expected = allocate_dst ();
+            ChannelFanout.Processor processor = (queue, row) -> {
+                int k;
+                synchronized (received) {
+                    k = received [row.link][row.timeslot] ++;
+                }
+                byte[][] dst = allocate_dst ();
+                new Reference ().demux (src [k][row.link], dst);
+                if (! Arrays.equals (dst [row.timeslot], row.data)) {
+                    throw new java.lang.RuntimeException ("ChannelFanout: link " + row.link + " TS" + row.timeslot +
+                                                          " block " + k + " not equal");
+                }
+            };
+            ChannelFanout fanout = mode == 0 ? ChannelFanout.per_channel (links, 2, processor)
+                                             : ChannelFanout.pool (links, 4, 2, processor);
+            for (int k = 0; k < blocks; k++) {
+                for (int link = 0; link < links; link++) {
+                    new Reference ().demux (src [k][link], expected);
+                    fanout.publish (link, expected);
+                }
+            }
+            fanout.close ();
+            for (int link = 0; link < links; link++) {
+                for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                    if (received [link][j] != (j == 0 || j == 16 ? 0 : blocks)) {
+                        throw new java.lang.RuntimeException ("ChannelFanout: link " + link + " TS" + j + " got " +
+                                                              received [link][j] + " rows");
+                    }
+                }
+            }
+        }
+
+        // A failing Processor must surface in publish () or close (), not leave publish () waiting for free rows
+        ChannelFanout failing = ChannelFanout.per_channel (links, 2, (queue, row) -> {
+            throw new IllegalStateException ("processor failure");
+        });
+        try {
+            byte[][] dst = allocate_dst ();
+            try {
+                for (int k = 0; k < 100; k++) failing.publish (0, dst);
+            } finally {
+                failing.close ();
+            }
+            throw new java.lang.RuntimeException ("ChannelFanout: processor failure not reported");
+        } catch (IllegalStateException e) {
+            if (! e.getMessage ().equals ("processor failure")) throw e;
+        }
+    }
+
+    static void consume (byte[][] dst)
+    {
+        int h = 0;
+        for (byte[] d : dst) {
+            for (byte b : d) h = h * 31 + b;
+        }
+        sink += h;
+    }
+
+    static void consume (ByteBuffer[] dst)
+    {
+        int h = 0;
+        for (ByteBuffer d : dst) {
+            for (int i = 0; i < d.limit (); i++) h = h * 31 + d.get (i);
+        }
+        sink += h;
+    }
+
+    static long checksum;                                                        // folded by every timed iteration
+    private static int fold_pos;
+
+    /** Folds one byte of every row into checksum, at a position that moves from one call to the next (a golden
+      * ratio step, scaled to the length of the first row without a division, and clamped to shorter rows).
+      * Called once per timed iteration, so that no iteration's stores are dead, for a load and an add per row
+      * instead of the whole of consume ().
+      */
+    static void fold (byte[][] dst)
+    {
+        long u = (fold_pos += 0x9E3779B9) & 0xFFFFFFFFL;
+        int pos = (int) (u * dst [0].length >>> 32);                             // rows are mostly all the same length
+        long h = 0;
+        for (byte[] d : dst) h += d [Math.min (pos, d.length - 1)];
+        checksum = checksum * 31 + h;
+    }
+
+    static void fold (short[][] dst)
+    {
+        long u = (fold_pos += 0x9E3779B9) & 0xFFFFFFFFL;
+        int pos = (int) (u * dst [0].length >>> 32);
+        long h = 0;
+        for (short[] d : dst) h += d [Math.min (pos, d.length - 1)];
+        checksum = checksum * 31 + h;
+    }
+
+    static void fold (ByteBuffer[] dst)
+    {
+        long u = (fold_pos += 0x9E3779B9) & 0xFFFFFFFFL;
+        int pos = (int) (u * dst [0].limit () >>> 32);
+        long h = 0;
+        for (ByteBuffer d : dst) h += d.get (Math.min (pos, d.limit () - 1));
+        checksum = checksum * 31 + h;
+    }
+
+    /** fold () of a flat array taken as NUM_TIMESLOTS equal parts, one byte of each */
+    static void fold (byte[] dst)
+    {
+        long u = (fold_pos += 0x9E3779B9) & 0xFFFFFFFFL;
+        int part = dst.length / NUM_TIMESLOTS;
+        int pos = (int) (u * part >>> 32);
+        long h = 0;
+        for (int j = 0; j < NUM_TIMESLOTS; j++) h += dst [j * part + pos];
+        checksum = checksum * 31 + h;
+    }
+
+    static void run (Runnable iteration, int iterations)
+    {
+        for (int i = 0; i < iterations; i++) {
+            iteration.run ();
+        }
+    }
+
+    static void measure (String name, Runnable iteration, Runnable drain)
+    {
+        measure (name, DST_SIZE, NUM_TIMESLOTS, iteration, drain);
+    }
+
+    /** Each iteration processes frames frames of timeslots bytes; the iteration count keeps the volume of a run fixed */
+    static void measure (String name, int frames, int timeslots, Runnable iteration, Runnable drain)
+    {
+        int iterations = (int) ((long) ITERATIONS * SRC_SIZE / (frames * timeslots));
+        for (int loop = 0; loop < WARMUPS; loop ++) {
+            run (iteration, iterations);
+            drain.run ();
+        }
+
+        System.out.print (name + ":");
+
+        long best = Long.MAX_VALUE;
+        for (int loop = 0; loop < REPETITIONS; loop ++) {
+            long t0 = System.nanoTime ();
+            run (iteration, iterations);
+            long t = System.nanoTime () - t0;
+            sink += (int) checksum;
+            drain.run ();
+            best = Math.min (best, t);
+            System.out.printf (" %.2f", (double) t / iterations / frames);
+        }
+        System.out.printf (" ns/frame; best %.0f MB/s%n", (double) iterations * frames * timeslots * 1000 / best);
+    }
+
+    static void measure (Demux demux)
+    {
+        check (demux);
+
+        byte[] src = generate ();
+        byte[][] dst = allocate_dst ();
+        measure (demux.getClass ().getCanonicalName (), () -> {
+            demux.demux (src, dst);
+            fold (dst);
+        }, () -> consume (dst));
+    }
+
+    static void measure (int timeslots, int frames)
+    {
+        Demux demux = demux_for (timeslots, frames);
+        for (int t = 1; t <= 40; t++) {
+            for (int f : new int [] {1, 7, 8, 64, 65}) {
+                check (demux_for (t, f), t, f);
+            }
+        }
+        check (demux, timeslots, frames);
+
+        byte[] src = new byte [timeslots * frames];
+        new Random (0).nextBytes (src);
+        byte[][] dst = new byte [timeslots][frames];
+        measure ("demux_for (" + timeslots + ", " + frames + ") = " + demux.getClass ().getName (),
+                 frames, timeslots, () -> {
+            demux.demux (src, dst);
+            fold (dst);
+        }, () -> consume (dst));
+    }
+
+    static void measure_generated (int timeslots, int frames)
+    {
+        Demux demux = Kernel_Generator.search (timeslots, frames, true);
+        check (demux, timeslots, frames);
+        if (demux_for (timeslots, frames) != demux) {
+            throw new java.lang.RuntimeException ("demux_for () does not return the searched kernel");
+        }
+
+        byte[] src = new byte [timeslots * frames];
+        new Random (0).nextBytes (src);
+        byte[][] dst = new byte [timeslots][frames];
+        measure ("Kernel_Generator.search (" + timeslots + ", " + frames + ")",
+                 frames, timeslots, () -> {
+            demux.demux (src, dst);
+            fold (dst);
+        }, () -> consume (dst));
+    }
+
+    static void measure_mux (Mux mux)
+    {
+        check_mux (mux);
+
+        byte[][] src = allocate_dst ();
+        byte[] dst = new byte [SRC_SIZE];
+        new Reference ().demux (generate (), src);
+        measure (mux.getClass ().getCanonicalName (), () -> {
+            mux.mux (src, dst);
+            fold (dst);
+        }, () -> consume (new byte[][] {dst}));
+    }
+
+    static void measure_flat (FlatDemux demux)
+    {
+        check_flat (demux);
+
+        byte[] src = generate ();
+        byte[] dst = new byte [SRC_SIZE];
+        measure (demux.getClass ().getCanonicalName (), () -> {
+            demux.demux (src, dst);
+            fold (dst);
+        }, () -> consume (new byte[][] {dst}));
+    }
+
+    static void measure_pcm (PcmDemux demux, short[] table, String law)
+    {
+        check_pcm (demux, table);
+
+        byte[] src = generate ();
+        short[][] dst = new short [NUM_TIMESLOTS][DST_SIZE];
+        measure (demux.getClass ().getCanonicalName () + " (" + law + ")", () -> {
+            demux.demux (src, dst);
+            fold (dst);
+        }, () -> sink += dst [NUM_TIMESLOTS - 1][DST_SIZE - 1]);
+    }
+
+    /** What PcmDemux replaces: a demux, then a second pass decoding every row */
+    static void measure_pcm_two_pass (Demux demux)
+    {
+        byte[] src = generate ();
+        byte[][] rows = allocate_dst ();
+        short[][] dst = new short [NUM_TIMESLOTS][DST_SIZE];
+        short[] t = G711.ALAW;
+        measure ("Two passes: " + demux.getClass ().getSimpleName () + ", then A-law decode", () -> {
+            demux.demux (src, rows);
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                byte[] r = rows [j];
+                short[] d = dst [j];
+                for (int i = 0; i < DST_SIZE; i++) d [i] = t [r [i] & 0xFF];
+            }
+            fold (dst);
+        }, () -> sink += dst [NUM_TIMESLOTS - 1][DST_SIZE - 1]);
+    }
+
+    static void measure_buffer (BufferDemux demux)
+    {
+        check_buffer (demux);
+
+        ByteBuffer src = generate_direct ();
+        ByteBuffer[] dst = allocate_direct_dst ();
+        measure (demux.getClass ().getCanonicalName (), () -> {
+            demux.demux (src, dst);
+            fold (dst);
+        }, () -> consume (dst));
+    }
+
+    static void measure_streaming (String name, StreamingDemux.Factory factory, int[] chunks)
+    {
+        check_streaming (factory);
+
+        byte[] src = new byte [Arrays.stream (chunks).sum ()];
+        new Random (0).nextBytes (src);
+        StreamingDemux demux = factory.create ((dst, n) -> sink += dst [NUM_TIMESLOTS - 1][n - 1]);
+        measure (name, src.length / NUM_TIMESLOTS, NUM_TIMESLOTS, () -> {
+            int pos = 0;
+            for (int len : chunks) {
+                demux.write (src, pos, len);
+                pos += len;
+            }
+        }, () -> {});
+    }
+
+    static void measure_hunt ()
+    {
+        check_aligner ();
+
+        byte[] src = generate_framed (DST_SIZE, new Random (0));
+        for (int i = 0; i < src.length; i += NUM_TIMESLOTS) {
+            src [i] ^= 1;
+        }
+        measure ("FrameAligner.find", () -> sink += FrameAligner.find (src, 0, src.length), () -> {});
+    }
+
+    static void measure_bit_aligner ()
+    {
+        check_bit_aligner ();
+
+        byte[] bits = rotate_bits (generate_framed (DST_SIZE, new Random (0)), 3);
+        BitAligner aligner = new BitAligner (new FrameAligner (new StreamingDemux (new Unrolled_1 (),
+                                             (dst, n) -> sink += dst [NUM_TIMESLOTS - 1][n - 1])));
+        measure ("BitAligner", () -> aligner.write (bits, 0, bits.length), () -> {
+            if (! aligner.in_frame ()) throw new java.lang.RuntimeException ("Alignment lost");
+        });
+
+        // Hunting through a stream without FAS, 16 bytes at a time: the cost should follow the bytes written
+        byte[] noise = new byte [SRC_SIZE];
+        new Random (0).nextBytes (noise);
+        BitAligner hunter = new BitAligner (new FrameAligner (new StreamingDemux (new Unrolled_1 (), (dst, n) -> {})));
+        measure ("BitAligner hunting, 16-byte writes", () -> {
+            for (int pos = 0; pos < noise.length; pos += 16) hunter.write (noise, pos, 16);
+        }, () -> {
+            if (hunter.in_frame ()) throw new java.lang.RuntimeException ("Alignment found in noise");
+        });
+    }
+
+    static void measure_crc4 ()
+    {
+        check_crc4 ();
+        measure (new Crc4_Swar_8x8 ());
+    }
+
+    static void measure_link_group ()
+    {
+        check_link_group ();
+
+        int links = 63;
+        Random random = new Random (0);
+        byte[][] src = new byte [links][SRC_SIZE];
+        for (byte[] s : src) random.nextBytes (s);
+        int cpus = Runtime.getRuntime ().availableProcessors ();
+        double single = 0;
+        for (int threads = 1; ; threads = Math.min (threads * 2, cpus)) {
+            try (LinkGroupDemuxer group = new LinkGroupDemuxer (links, threads,
+                                                                () -> demux_for (NUM_TIMESLOTS, DST_SIZE))) {
+                int[] drains = {0};
+                measure ("LinkGroupDemuxer (" + links + " links, " + threads + " threads)", links * DST_SIZE,
+                         NUM_TIMESLOTS, () -> {
+                             group.demux (src);
+                             for (int link = 0; link < links; link++) fold (group.dst (link));
+                         }, () -> {
+                             consume (group.dst (links - 1));
+                             if (++ drains [0] == WARMUPS) group.reset ();          // the rates leave out warm-up
+                         });
+                double rate = group.frames_per_second ();
+                double min = Double.MAX_VALUE, max = 0;
+                for (int link = 0; link < links; link++) {
+                    min = Math.min (min, group.frames_per_second (link));
+                    max = Math.max (max, group.frames_per_second (link));
+                }
+                if (threads == 1) single = rate;
+                System.out.printf ("  aggregate %.3g frames/s (x%.2f of one thread); per link %.3g .. %.3g frames/s%n",
+                                   rate, rate / single, min, max);
+            }
+            if (threads == cpus) break;
+        }
+    }
+
+    /** The same count buffers through the batch entry point of the kernel, or (per_call) one demux () call each */
+    static void measure_batch (Demux demux, int count, boolean per_call)
+    {
+        check_batch (demux);
+
+        Random random = new Random (0);
+        byte[][] src = new byte [count][SRC_SIZE];
+        for (byte[] s : src) random.nextBytes (s);
+        byte[][][] dst = new byte [count][][];
+        for (int k = 0; k < count; k++) dst [k] = allocate_dst ();
+        Runnable run = per_call ? () -> { for (int k = 0; k < count; k++) demux.demux (src [k], dst [k]); }
+                                : () -> demux.demux (src, dst);
+        Runnable folded = () -> {
+            run.run ();
+            for (byte[][] d : dst) fold (d);
+        };
+        measure ((per_call ? "Per call, " : "Batch of ") + count + ": " + demux.getClass ().getCanonicalName (),
+                 count * DST_SIZE, NUM_TIMESLOTS, folded, () -> consume (dst [count - 1]));
+    }
+
+    static final long WARMUP_NS = 200000000;
+    static final int WARMUP_CALLS = 12000;
+
+    /** Waits (up to max_ms) until the JIT has been idle for a while, so queued compilations get to finish */
+    static void await_compilation (long max_ms)
+    {
+        java.lang.management.CompilationMXBean jit = ManagementFactory.getCompilationMXBean ();
+        if (jit == null || ! jit.isCompilationTimeMonitoringSupported ()) return;
+        long end = System.currentTimeMillis () + max_ms;
+        long last = -1;
+        int quiet = 0;
+        while (quiet < 5 && System.currentTimeMillis () < end) {
+            try {
+                Thread.sleep (10);
+            } catch (InterruptedException e) {
+                Thread.currentThread ().interrupt ();
+                return;
+            }
+            long time = jit.getTotalCompilationTime ();
+            quiet = time == last ? quiet + 1 : 0;
+            last = time;
+        }
+    }
+
+    /** Times the (already checked) kernels on random data of the given geometry and returns the index of the fastest */
+    static int fastest (Demux[] kernels, String[] names, int timeslots, int frames, boolean verbose)
+    {
+        byte[] src = new byte [timeslots * frames];
+        new Random (0).nextBytes (src);
+        byte[][] dst = new byte [timeslots][frames];
+        int calls = Math.max (1, 4000000 / src.length);
+        long[] times = new long [kernels.length];
+        // Compilation runs in the background and, on a busy or single CPU, lags far behind the calls.
+        // Each kernel is called past the C2 thresholds and the JIT is given time to drain its queue
+        // before the next one (twice, as the first round mostly produces OSR code); only then are
+        // the kernels timed, in interleaved rounds
+        for (int n = 0; n < kernels.length; n++) {
+            for (int round = 0; round < 2; round ++) {
+                long end = System.nanoTime () + WARMUP_NS;
+                for (int i = 0; i < WARMUP_CALLS && System.nanoTime () < end; i++) kernels [n].demux (src, dst);
+                await_compilation (1000);
+            }
+            times [n] = Long.MAX_VALUE;
+        }
+        for (int loop = 0; loop < 5; loop ++) {
+            for (int n = 0; n < kernels.length; n++) {
+                long t0 = System.nanoTime ();
+                for (int i = 0; i < calls; i++) kernels [n].demux (src, dst);
+                times [n] = Math.min (times [n], System.nanoTime () - t0);
+            }
+        }
+        // A kernel far behind the rest is most likely still running OSR or profiled code: give it
+        // another chance before ruling it out
+        long min = Long.MAX_VALUE;
+        for (long t : times) min = Math.min (min, t);
+        for (int n = 0; n < kernels.length; n++) {
+            for (int retry = 0; retry < 3 && times [n] > 2 * min && times [n] < 20 * min; retry ++) {
+                long end = System.nanoTime () + WARMUP_NS;
+                for (int i = 0; i < WARMUP_CALLS && System.nanoTime () < end; i++) kernels [n].demux (src, dst);
+                await_compilation (1000);
+                long t0 = System.nanoTime ();
+                for (int i = 0; i < calls; i++) kernels [n].demux (src, dst);
+                times [n] = Math.min (times [n], System.nanoTime () - t0);
+            }
+        }
+        int fastest = 0;
+        for (int n = 0; n < kernels.length; n++) {
+            if (verbose) {
+                System.out.printf ("  %-40s %6.2f ns/frame%n", names [n], (double) times [n] / calls / frames);
+            }
+            if (times [n] < times [fastest]) fastest = n;
+        }
+        if (verbose) {
+            System.out.println ("Fastest: " + names [fastest]);
+        }
+        return fastest;
+    }
+
+    static void measure_adaptive ()
+    {
+        long t0 = System.nanoTime ();
+        AdaptiveDemux demux = new AdaptiveDemux (AdaptiveDemux.PROFILE, true);
+        System.out.printf ("AdaptiveDemux: %s %s in %.0f ms%n", demux.chosen ().getClass ().getSimpleName (),
+                           demux.calibrated () ? "calibrated" : "read from " + AdaptiveDemux.PROFILE,
+                           (System.nanoTime () - t0) / 1e6);
+        check (demux);
+
+        byte[] src = generate ();
+        byte[][] dst = allocate_dst ();
+        measure ("AdaptiveDemux (" + demux.chosen ().getClass ().getSimpleName () + ")",
+                 () -> {
+            demux.demux (src, dst);
+            fold (dst);
+        }, () -> consume (dst));
+    }
+
+    static void measure_masked (int mask)
+    {
+        check_masked ();
+
+        Masked_Swar_8x8 demux = new Masked_Swar_8x8 (mask);
+        byte[] src = generate ();
+        byte[][] dst = allocate_dst ();
+        byte[][] selected = new byte [Integer.bitCount (mask)][];                // the rows demux () writes
+        for (int j = 0, n = 0; j < NUM_TIMESLOTS; j++) {
+            if ((mask >>> j & 1) != 0) selected [n++] = dst [j];
+        }
+        measure ("Masked_Swar_8x8 (" + Integer.bitCount (mask) + " timeslots, " + String.format ("%08X", mask) + ")",
+                 () -> {
+            demux.demux (src, dst);
+            fold (selected);
+        }, () -> consume (selected));
+    }
+
+    static void measure_nx64 (String name, int[]... groups)
+    {
+        check_nx64 ();
+
+        Nx64_Demux demux = new Nx64_Demux (groups);
+        byte[] src = generate ();
+        byte[][] dst = new byte [groups.length][];
+        for (int g = 0; g < groups.length; g++) dst [g] = new byte [DST_SIZE * groups [g].length];
+        measure ("Nx64_Demux (" + name + ")", () -> {
+            demux.demux (src, dst);
+            fold (dst);
+        }, () -> consume (dst));
+    }
+
+    /** What Nx64_Demux replaces: demultiplex all 32 rows, then interleave TS1-TS8 again */
+    static void measure_nx64_two_pass ()
+    {
+        Demux demux = new Unrolled_1 ();
+        byte[] src = generate ();
+        byte[][] rows = allocate_dst ();
+        byte[] bundle = new byte [DST_SIZE * 8];
+        measure ("Two passes (TS1-TS8): Unrolled_1, then interleave", () -> {
+            demux.demux (src, rows);
+            for (int f = 0; f < DST_SIZE; f++) {
+                for (int i = 0; i < 8; i++) bundle [f * 8 + i] = rows [1 + i][f];
+            }
+            fold (bundle);
+        }, () -> consume (new byte[][] {bundle}));
+    }
+
+    /** Steady state: aligned, no signalling changes; the TS16 row of a block and TS16 read straight from src */
+    static void measure_cas (boolean from_src)
+    {
+        check_cas ();
+
+        byte[] ts16 = Arrays.copyOfRange (generate_cas (DST_SIZE / CasExtractor.MF_FRAMES + 4), 5 + 4 * CasExtractor.MF_FRAMES,
+                                          5 + 4 * CasExtractor.MF_FRAMES + DST_SIZE);
+        byte[] src = generate ();
+        for (int f = 0; f < DST_SIZE; f++) src [f * NUM_TIMESLOTS + 16] = ts16 [f];
+        CasExtractor cas = new CasExtractor ((c, old, abcd) -> sink += abcd);
+        cas.write (ts16, 0, DST_SIZE);
+        cas.write (ts16, 0, DST_SIZE);
+        if (from_src) {
+            measure ("CasExtractor.write_frames", () -> cas.write_frames (src, 0, DST_SIZE), () -> sink += cas.abcd (1));
+        } else {
+            measure ("CasExtractor.write", () -> cas.write (ts16, 0, DST_SIZE), () -> sink += cas.abcd (1));
+        }
+        if (! cas.in_multiframe ()) {
+            throw new java.lang.RuntimeException ("Multiframe alignment lost");
+        }
+    }
+
+    /** One timeslot of back-to-back frames of the given payload size, one flag between them */
+    static void measure_hdlc (int fcs_bits, int payload)
+    {
+        check_hdlc ();
+
+        Random random = new Random (0);
+        List<byte[]> payloads = new ArrayList<byte[]> ();
+        for (int n = 0; n < 64; n++) {
+            byte[] p = new byte [payload];
+            random.nextBytes (p);
+            payloads.add (p);
+        }
+        byte[] stream = hdlc_encode (payloads, fcs_bits, -1);
+        HdlcDeframer.Frame_Pool pool = new HdlcDeframer.Frame_Pool (4, payload + 4);
+        HdlcDeframer hdlc = new HdlcDeframer (fcs_bits, pool, f -> {
+            sink += f.length;
+            pool.release (f);
+        });
+        int iterations = Math.max (1, 20000000 / stream.length);
+        for (int loop = 0; loop < WARMUPS; loop ++) {
+            for (int i = 0; i < iterations; i++) hdlc.write (stream, 0, stream.length);
+        }
+        System.out.print ("HdlcDeframer (FCS-" + fcs_bits + ", " + payload + "-byte frames):");
+        long best = Long.MAX_VALUE;
+        for (int loop = 0; loop < REPETITIONS; loop ++) {
+            long t0 = System.nanoTime ();
+            for (int i = 0; i < iterations; i++) hdlc.write (stream, 0, stream.length);
+            long t = System.nanoTime () - t0;
+            best = Math.min (best, t);
+            System.out.printf (" %.2f", (double) t / iterations / payloads.size ());
+        }
+        if (hdlc.frames () != (long) (WARMUPS + REPETITIONS) * iterations * payloads.size () || hdlc.fcs_errors () != 0
+            || hdlc.bad_length () != 0 || hdlc.overruns () != 0 || hdlc.aborts () != 0) {
+            throw new java.lang.RuntimeException ("HDLC errors in the benchmark stream");
+        }
+        System.out.printf (" ns/HDLC frame; best %.3g frames/s on one core, %.0f timeslots at 64 kbit/s%n",
+                           (double) iterations * payloads.size () * 1e9 / best, (double) iterations * stream.length * 1e9 / best / 8000);
+    }
+
+    static void measure_idle ()
+    {
+        check_idle ();
+
+        Idle_Swar_8x8 demux = Idle_Swar_8x8.alaw (2);
+        byte[] src = generate ();
+        byte[][] dst = allocate_dst ();
+        measure ("Idle_Swar_8x8 (A-law, level 2)", () -> {
+            sink += demux.demux_idle (src, dst);
+            fold (dst);
+        }, () -> consume (dst));
+    }
+
+    /** One thread: demux into the rings and read every ring back */
+    static void measure_rings ()
+    {
+        check_rings ();
+
+        RingDemux demux = new RingDemux (16 * DST_SIZE, 1);
+        byte[] src = generate ();
+        byte[] out = new byte [DST_SIZE];
+        measure ("RingDemux (demux and read back, one thread)", () -> {
+            demux.demux (src);
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                demux.ring (j).read (out, 0, DST_SIZE);
+                checksum = checksum * 31 + out [j];
+            }
+        }, () -> sink += out [0]);
+    }
+
+    /** The producer demultiplexes a block every period_ns; consumer threads, each owning some of the rings, poll
+      * them and take the time from publication to arrival of every block */
+    static void measure_ring_latency (int consumers, int batch, long period_ns) throws InterruptedException
+    {
+        int blocks = (int) Math.min (100000, 2000000000L / period_ns);
+        int capacity = 64 * DST_SIZE;
+        RingDemux demux = new RingDemux (capacity, batch);
+        long[] stamps = new long [blocks];
+        long[][] latencies = new long [consumers][];
+        AtomicBoolean done = new AtomicBoolean ();
+        Thread[] threads = new Thread [consumers];
+        for (int c = 0; c < consumers; c++) {
+            int id = c;
+            threads [c] = new Thread (() -> {
+                int from = NUM_TIMESLOTS * id / consumers, to = NUM_TIMESLOTS * (id + 1) / consumers;
+                long[] lat = new long [blocks];
+                int n = 0;
+                long[] read = new long [NUM_TIMESLOTS];
+                byte[] out = new byte [capacity];
+                while (read [from] < (long) blocks * DST_SIZE && ! (done.get () && demux.ring (from).head () == read [from])) {
+                    boolean any = false;
+                    for (int j = from; j < to; j++) {
+                        int r = demux.ring (j).read (out, 0, out.length);
+                        if (r == 0) continue;
+                        any = true;
+                        if (j == from) {
+                            long now = System.nanoTime ();
+                            for (long b = read [j] / DST_SIZE; b < (read [j] + r) / DST_SIZE; b++) {
+                                lat [n++] = now - stamps [(int) b];
+                            }
+                        }
+                        read [j] += r;
+                    }
+                    if (! any) Thread.yield ();
+                }
+                latencies [id] = Arrays.copyOf (lat, n);
+            });
+            threads [c].setDaemon (true);
+            threads [c].start ();
+        }
+        byte[] src = generate ();
+        long next = System.nanoTime ();
+        for (int b = 0; b < blocks; b++) {
+            while (System.nanoTime () < next) Thread.yield ();                  // lets consumers run on one CPU
+            next += period_ns;
+            stamps [b] = System.nanoTime ();
+            demux.demux (src);
+        }
+        demux.flush ();
+        done.set (true);
+        for (Thread t : threads) t.join ();
+        long overruns = 0;
+        for (int j = 0; j < NUM_TIMESLOTS; j++) overruns += demux.overruns (j);
+        System.out.printf ("RingDemux latency (%d consumers, batch %d, a block every %d ns): ", consumers, batch, period_ns);
+        for (int c = 0; c < consumers; c++) {
+            if (demux.overruns (NUM_TIMESLOTS * c / consumers) != 0) {
+                // the sampled ring lost blocks, so its block numbers no longer match the stamps
+                System.out.printf ("consumers too slow, %d overruns%n", overruns);
+                return;
+            }
+        }
+        long[] all = Arrays.stream (latencies).flatMapToLong (Arrays::stream).sorted ().toArray ();
+        System.out.printf ("p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f us; %d overruns%n",
+                           all [all.length / 2] / 1e3, all [(int) (all.length * 0.99)] / 1e3,
+                           all [(int) (all.length * 0.999)] / 1e3, all [all.length - 1] / 1e3, overruns);
+    }
+
+    /** Sustained throughput of the whole pipeline, in E1 links (125 blocks/s each) per core used */
+    static void measure_pipeline (int batch) throws InterruptedException
+    {
+        int links = 64;
+        Random random = new Random (0);
+        byte[][] src = new byte [links][SRC_SIZE];
+        for (byte[] s : src) random.nextBytes (s);
+        Demux demux = demux_for (NUM_TIMESLOTS, DST_SIZE);
+        try (Pipeline pipeline = new Pipeline (64, batch, links, demux, G711.ALAW,
+                                               block -> {
+                                                   System.arraycopy (src [block.link], 0, block.src, 0, SRC_SIZE);
+                                                   return true;
+                                               },
+                                               block -> sink += block.pcm [block.link & 31][(int) block.seq & 63])) {
+            Thread.sleep (WARMUP_NS / 1000000);
+            long b0 = pipeline.blocks (), s0 = pipeline.stalls (), t0 = System.nanoTime ();
+            Thread.sleep (2000);
+            long b1 = pipeline.blocks (), s1 = pipeline.stalls (), t1 = System.nanoTime ();
+            double rate = (b1 - b0) * 1e9 / (t1 - t0);
+            int cores = Math.min (4, Runtime.getRuntime ().availableProcessors ());
+            System.out.printf ("Pipeline (%s, batch %d): %.0f blocks/s = %.0f links on %d cores, %.0f links per core; " +
+                               "%d capture stalls%n", demux.getClass ().getSimpleName (), batch, rate, rate / 125,
+                               cores, rate / 125 / cores, s1 - s0);
+        }
+    }
+
+    /** 63 links through ChannelFanout: rows per second, publish-to-process latency, and heap, RSS and platform
+      * threads halfway through. rss0 is the resident set size before the first run of this model, since freed
+      * stacks and heap stay resident.
+      */
+    static void measure_fanout (boolean virtual, int threads, long rss0) throws InterruptedException
+    {
+        int links = 63, blocks = 200;
+        byte[][] dst = allocate_dst ();
+        new Swar_8x8 ().demux (generate (), dst);
+        int rows = links * blocks * ChannelFanout.VOICE_CHANNELS;
+        int queues = virtual ? links * ChannelFanout.VOICE_CHANNELS : threads;
+        long[][] latency = new long [queues][(links * ChannelFanout.VOICE_CHANNELS + queues - 1) / queues * blocks];
+        int[] count = new int [queues];
+        ChannelFanout.Processor processor = (queue, row) -> {
+            int energy = 0;                                                      // a little work per row
+            for (byte b : row.data) {
+                int x = G711.ALAW [b & 0xFF];
+                energy += x * x >>> 8;
+            }
+            if (energy == 42) sink ++;
+            latency [queue][count [queue] ++] = System.nanoTime () - row.published;
+        };
+
+        System.gc ();
+        java.lang.management.MemoryMXBean memory = ManagementFactory.getMemoryMXBean ();
+        long heap0 = memory.getHeapMemoryUsage ().getUsed ();
+        int threads0 = ManagementFactory.getThreadMXBean ().getThreadCount ();
+        long heap1 = 0, rss1 = 0;
+        int threads1 = 0;
+        long t0 = System.nanoTime ();
+        ChannelFanout fanout = virtual ? ChannelFanout.per_channel (links, 4, processor)
+                                       : ChannelFanout.pool (links, threads, 4, processor);
+        for (int k = 0; k < blocks; k++) {
+            for (int link = 0; link < links; link++) fanout.publish (link, dst);
+            if (k == blocks / 2) {                                               // memory under load, all consumers busy
+                heap1 = memory.getHeapMemoryUsage ().getUsed ();
+                rss1 = rss ();
+                threads1 = ManagementFactory.getThreadMXBean ().getThreadCount ();
+            }
+        }
+        fanout.close ();
+        long t1 = System.nanoTime ();
+
+        long[] all = new long [rows];
+        int n = 0;
+        for (int q = 0; q < queues; q++) {
+            System.arraycopy (latency [q], 0, all, n, count [q]);
+            n += count [q];
+        }
+        Arrays.sort (all, 0, n);
+        String name = virtual ? (fanout.virtual () ? "virtual thread per channel" : "platform thread per channel (no virtual threads)")
+                              : threads + " platform threads";
+        System.out.printf ("ChannelFanout (%d links, %s): %.3g rows/s; latency p50 %.1f, p99 %.1f, p99.9 %.1f us; " +
+                           "under load heap +%.1f MB, RSS %s, +%d platform threads%n", links, name, n * 1e9 / (t1 - t0),
+                           all [n / 2] / 1e3, all [(int) (n * 0.99)] / 1e3, all [(int) (n * 0.999)] / 1e3,
+                           (heap1 - heap0) / 1e6, rss0 < 0 ? "n/a" : String.format ("+%.1f MB", (rss1 - rss0) / 1e6),
+                           threads1 - threads0);
+    }
+
+    /** Resident set size of this process from /proc (thread stacks included), -1 where there is none */
+    static long rss ()
+    {
+        try {
+            for (String line : Files.readAllLines (Paths.get ("/proc/self/status"))) {
+                if (line.startsWith ("VmRSS:")) {
+                    return Long.parseLong (line.replaceAll ("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not Linux
+        }
+        return -1;
+    }
+
+    /** One consumer model in a JVM of its own, so that memory and thread figures are not left over from another */
+    static void measure_fanout_model (boolean virtual, int threads_per_cpu)
+    {
+        try {
+            check_fanout ();
+            int threads = threads_per_cpu * Runtime.getRuntime ().availableProcessors ();
+            long rss0 = rss ();
+            measure_fanout (virtual, threads, rss0);                             // warm-up
+            measure_fanout (virtual, threads, rss0);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException (e);
+        }
+    }
+
+    static Map<String, Runnable> benchmarks ()
+    {
+        Map<String, Runnable> benchmarks = new LinkedHashMap<String, Runnable> ();
+        for (Demux demux : implementations ()) {
+            benchmarks.put (demux.getClass ().getSimpleName (), () -> measure (demux));
+        }
+        for (BufferDemux demux : buffer_implementations ()) {
+            benchmarks.put (demux.getClass ().getSimpleName (), () -> measure_buffer (demux));
+        }
+        for (Mux mux : mux_implementations ()) {
+            benchmarks.put (mux.getClass ().getSimpleName (), () -> measure_mux (mux));
+        }
+        for (FlatDemux demux : flat_implementations ()) {
+            benchmarks.put (demux.getClass ().getSimpleName (), () -> measure_flat (demux));
+        }
+        benchmarks.put ("Pcm_Dst_First", () -> measure_pcm (new Pcm_Dst_First (G711.ALAW), G711.ALAW, "A-law"));
+        benchmarks.put ("Pcm_Unrolled_1", () -> measure_pcm (new Pcm_Unrolled_1 (G711.ALAW), G711.ALAW, "A-law"));
+        benchmarks.put ("Pcm_Unrolled_1_Ulaw", () -> measure_pcm (new Pcm_Unrolled_1 (G711.ULAW), G711.ULAW, "mu-law"));
+        benchmarks.put ("Pcm_Two_Pass_Unrolled_1", () -> measure_pcm_two_pass (new Unrolled_1 ()));
+        benchmarks.put ("Pcm_Two_Pass_Unrolled_1_16", () -> measure_pcm_two_pass (new Unrolled_1_16 ()));
+        for (int[] g : new int[][] {{32, 64}, {24, 64}, {32, 1024}, {12, 64}}) {
+            benchmarks.put ("Geometry_" + g[0] + "x" + g[1], () -> measure (g[0], g[1]));
+        }
+        for (int[] g : new int[][] {{32, 64}, {24, 64}, {32, 1024}, {24, 100}, {7, 9}, {31, 3}}) {
+            benchmarks.put ("Generated_" + g[0] + "x" + g[1], () -> measure_generated (g[0], g[1]));
+        }
+        benchmarks.put ("Streaming_Aligned", () -> measure_streaming ("Streaming_Aligned",
+            sink -> new StreamingDemux (new Unrolled_1 (), sink), new int [] {SRC_SIZE}));
+        benchmarks.put ("Streaming_Unaligned", () -> measure_streaming ("Streaming_Unaligned",
+            sink -> new StreamingDemux (new Unrolled_1 (), sink), new int [] {700, 700, 648}));
+        for (Demux kernel : new Demux [] {new Unrolled_1 (), new Swar_8x8 ()}) {
+            String name = "Streaming_Large_" + kernel.getClass ().getSimpleName ();
+            benchmarks.put (name, () -> measure_streaming (name,
+                sink -> new StreamingDemux (kernel, sink), new int [] {SRC_SIZE * 2 + 100, SRC_SIZE * 2 - 100}));
+        }
+        benchmarks.put ("FrameAligner_Hunt", () -> measure_hunt ());
+        benchmarks.put ("BitAligner", () -> measure_bit_aligner ());
+        benchmarks.put ("Crc4_Swar_8x8", () -> measure_crc4 ());
+        benchmarks.put ("LinkGroupDemuxer", () -> measure_link_group ());
+        benchmarks.put ("AdaptiveDemux", () -> measure_adaptive ());
+        benchmarks.put ("Idle_Swar_8x8", () -> measure_idle ());
+        benchmarks.put ("Masked_All", () -> measure_masked (Masked_Swar_8x8.ALL));
+        benchmarks.put ("Masked_All_But_TS0_TS16", () -> measure_masked (Masked_Swar_8x8.ALL_BUT_TS0_TS16));
+        benchmarks.put ("Masked_8", () -> measure_masked (0x00FF0000));
+        benchmarks.put ("Masked_4", () -> measure_masked (0x01010101));
+        benchmarks.put ("Masked_1", () -> measure_masked (0x00000002));
+        benchmarks.put ("Nx64_TS1-8", () -> measure_nx64 ("TS1-TS8", Nx64_Demux.range (1, 8)));
+        benchmarks.put ("Nx64_TS1-8_Two_Pass", () -> measure_nx64_two_pass ());
+        benchmarks.put ("Nx64_TS1-15_TS17-31", () -> measure_nx64 ("TS1-TS15, TS17-TS31",
+                                                                   Nx64_Demux.range (1, 15), Nx64_Demux.range (17, 15)));
+        benchmarks.put ("Nx64_Scattered", () -> measure_nx64 ("TS1, TS3, TS5, TS7", new int [] {1, 3, 5, 7}));
+        benchmarks.put ("CasExtractor_Row", () -> measure_cas (false));
+        benchmarks.put ("CasExtractor_Src", () -> measure_cas (true));
+        benchmarks.put ("HdlcDeframer_FCS16_Short", () -> measure_hdlc (16, 6));
+        benchmarks.put ("HdlcDeframer_FCS16", () -> measure_hdlc (16, 64));
+        benchmarks.put ("HdlcDeframer_FCS32", () -> measure_hdlc (32, 256));
+        benchmarks.put ("RingDemux", () -> measure_rings ());
+        benchmarks.put ("Pipeline", () -> {
+            try {
+                check_pipeline ();
+                measure_pipeline (1);
+                measure_pipeline (16);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException (e);
+            }
+        });
+        benchmarks.put ("ChannelFanout_Per_Channel", () -> measure_fanout_model (true, 0));
+        benchmarks.put ("ChannelFanout_Pool", () -> measure_fanout_model (false, 1));
+        benchmarks.put ("ChannelFanout_Pool_4x", () -> measure_fanout_model (false, 4));
+        benchmarks.put ("RingDemux_Latency", () -> {
+            try {
+                int consumers = Math.max (1, Math.min (4, Runtime.getRuntime ().availableProcessors () - 1));
+                measure_ring_latency (consumers, 1, 8000000);                      // one link at line rate
+                measure_ring_latency (consumers, 1, 100000);
+                measure_ring_latency (consumers, 4, 100000);
+                measure_ring_latency (consumers, 1, 20000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException (e);
+            }
+        });
+        for (Demux demux : new Demux [] {new Unrolled_1 (), new Unrolled_1_16 (), new Swar_8x8 ()}) {
+            String name = demux.getClass ().getSimpleName ();
+            benchmarks.put ("Batch16_" + name, () -> measure_batch (demux, 16, false));
+            benchmarks.put ("PerCall16_" + name, () -> measure_batch (demux, 16, true));
+        }
+        return benchmarks;
+    }
+
+    static Demux[] implementations ()
+    {
+        return Arrays.stream (new Demux [] {
+            new Reference (),
+            new Src_First_1 (),
+            new Src_First_2 (),
+            new Src_First_3 (),
+            new Dst_First_1 (),
+            new Dst_First_2 (),
+            new Dst_First_3 (),
+            new Unrolled_1 (),
+            new Unrolled_2_Full (),
+            new Unrolled_3 (),
+            new Unrolled_4 (),
+            new Unrolled_1_2 (),
+            new Unrolled_1_4 (),
+            new Unrolled_1_8 (),
+            new Unrolled_1_16 (),
+            new Swar_8x8 (),
+            load_vector ("Vector_Unzip", Demux.class)
+        }).filter (Objects::nonNull).toArray (Demux[]::new);
+    }
+
+    /** The named class of E1Vector.java, or null when that file or the incubator module is missing */
+    static <T> T load_vector (String name, Class<T> type)
+    {
+        try {
+            return type.cast (Class.forName ("E1Vector$" + name).getDeclaredConstructor ().newInstance ());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /** Vector_Unzip, or Unrolled_1_16 when E1Vector.java or the incubator module is missing */
+    static Demux vector ()
+    {
+        return Objects.requireNonNullElseGet (load_vector ("Vector_Unzip", Demux.class), Unrolled_1_16::new);
+    }
+
+    /** The fastest kernel for buffers of the given number of frames with the given number of timeslots each:
+      * the one Kernel_Generator.search () picked on this CPU if it has been run for this geometry, Unrolled_1
+      * for 32x64, otherwise the kernel generated for this geometry with the default shape
+      */
+    static Demux demux_for (int timeslots, int frames)
+    {
+        Demux generated = Kernel_Generator.searched (timeslots, frames);
+        if (generated != null) {
+            return generated;
+        }
+        if (timeslots == NUM_TIMESLOTS && frames == DST_SIZE) {
+            return new Unrolled_1 ();
+        }
+        return Kernel_Generator.generated (timeslots, frames);
+    }
+
+    static Mux[] mux_implementations ()
+    {
+        return Arrays.stream (new Mux [] {
+            new Mux_Reference (),
+            new Mux_Src_First (),
+            new Mux_Unrolled_1 (),
+            new Mux_Swar_8x8 (),
+            load_vector ("Mux_Vector_Zip", Mux.class)
+        }).filter (Objects::nonNull).toArray (Mux[]::new);
+    }
+
+    /** Mux_Vector_Zip, or Mux_Swar_8x8 when E1Vector.java or the incubator module is missing */
+    static Mux mux_vector ()
+    {
+        return Objects.requireNonNullElseGet (load_vector ("Mux_Vector_Zip", Mux.class), Mux_Swar_8x8::new);
+    }
+
+    static FlatDemux[] flat_implementations ()
+    {
+        return new FlatDemux [] {
+            new Flat_Dst_First (),
+            new Flat_Unrolled_1 (),
+            new Flat_Swar_8x8 ()
+        };
+    }
+
+    static BufferDemux[] buffer_implementations ()
+    {
+        return Arrays.stream (new BufferDemux [] {
+            new Buffer_Reference (),
+            new Buffer_Unrolled_1 (),
+            new Buffer_Swar_8x8 (),
+            load_vector ("Buffer_Vector_Unzip", BufferDemux.class)
+        }).filter (Objects::nonNull).toArray (BufferDemux[]::new);
+    }
+
+    /** Buffer_Vector_Unzip, or Buffer_Swar_8x8 when E1Vector.java or the incubator module is missing */
+    static BufferDemux buffer_vector ()
+    {
+        return Objects.requireNonNullElseGet (load_vector ("Buffer_Vector_Unzip", BufferDemux.class), Buffer_Swar_8x8::new);
+    }
+
+    static Demux find (String name)
+    {
+        for (Demux demux : implementations ()) {
+            if (demux.getClass ().getSimpleName ().equals (name)) {
+                return demux;
+            }
+        }
+        throw new IllegalArgumentException ("Unknown implementation: " + name);
+    }
+
+    static void fork (String name) throws IOException, InterruptedException
+    {
+        List<String> cmd = new ArrayList<String> ();
+        cmd.add (System.getProperty ("java.home") + "/bin/java");
+        cmd.addAll (ManagementFactory.getRuntimeMXBean ().getInputArguments ());
+        cmd.add ("-cp");
+        cmd.add (System.getProperty ("java.class.path"));
+        cmd.add (E1.class.getName ());
+        cmd.add (name);
+        int rc = new ProcessBuilder (cmd).inheritIO ().start ().waitFor ();
+        if (rc != 0) {
+            throw new java.lang.RuntimeException ("Fork for " + name + " failed with exit code " + rc);
+        }
+    }
+
+    private static boolean unmap_failed = false;
+
+    /** Unmaps a window straight away rather than when it is collected, so resident pages stay bounded */
+    static void unmap (MappedByteBuffer buf)
+    {
+        try {
+            Class<?> unsafe = Class.forName ("sun.misc.Unsafe");
+            Field f = unsafe.getDeclaredField ("theUnsafe");
+            f.setAccessible (true);
+            unsafe.getMethod ("invokeCleaner", ByteBuffer.class).invoke (f.get (null), buf);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Left to the garbage collector, so the resident pages are no longer bounded by the window
+            if (! unmap_failed) {
+                unmap_failed = true;
+                System.err.println ("Cannot unmap capture windows early, leaving them to the garbage collector: " + e);
+            }
+        }
+    }
+
+    static void demux_file (Path capture, Path dir, int window_mb) throws IOException
+    {
+        long bytes = Math.min ((long) window_mb * 1024 * 1024, Integer.MAX_VALUE / SRC_SIZE * SRC_SIZE);
+        bytes = Math.min (bytes, Math.max (SRC_SIZE, (Files.size (capture) + SRC_SIZE - 1) / SRC_SIZE * SRC_SIZE));
+        int window = (int) bytes / SRC_SIZE * SRC_SIZE;
+        if (window <= 0) {
+            throw new IllegalArgumentException ("Window too small: " + window_mb + " MB");
+        }
+        BufferDemux kernel = buffer_vector ();
+        ByteBuffer[] dst = new ByteBuffer [NUM_TIMESLOTS];
+        for (int i = 0; i < NUM_TIMESLOTS; i++) {
+            dst [i] = ByteBuffer.allocateDirect (window / NUM_TIMESLOTS);
+        }
+        Files.createDirectories (dir);
+        FileChannel[] out = new FileChannel [NUM_TIMESLOTS];
+        try (FileChannel in = FileChannel.open (capture, StandardOpenOption.READ)) {
+            for (int i = 0; i < NUM_TIMESLOTS; i++) {
+                out [i] = FileChannel.open (dir.resolve (String.format ("ts%02d.raw", i)),
+                                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            long size = in.size () / NUM_TIMESLOTS * NUM_TIMESLOTS;
+            long t0 = System.nanoTime ();
+            for (long pos = 0; pos < size; pos += window) {
+                int len = (int) Math.min (window, size - pos);
+                MappedByteBuffer src = in.map (FileChannel.MapMode.READ_ONLY, pos, len);
+                int whole = len / (NUM_TIMESLOTS * 8) * (NUM_TIMESLOTS * 8);
+                if (whole == len) {
+                    kernel.demux (src, dst);
+                } else {
+                    // Only the last window can be partial: the kernel takes its whole blocks, the reference the
+                    // frames after them, into the rows from where the kernel stopped
+                    kernel.demux (src.slice (0, whole), dst);
+                    ByteBuffer[] tail = new ByteBuffer [NUM_TIMESLOTS];
+                    for (int i = 0; i < NUM_TIMESLOTS; i++) {
+                        tail [i] = dst [i].slice (whole / NUM_TIMESLOTS, (len - whole) / NUM_TIMESLOTS);
+                    }
+                    new Buffer_Reference ().demux (src.slice (whole, len - whole), tail);
+                }
+                unmap (src);
+                for (int i = 0; i < NUM_TIMESLOTS; i++) {
+                    ByteBuffer d = dst [i];
+                    d.clear ().limit (len / NUM_TIMESLOTS);
+                    while (d.hasRemaining ()) {
+                        out [i].write (d);
+                    }
+                }
+            }
+            long t = System.nanoTime () - t0;
+            System.out.printf ("%s: %d bytes in %.3f s, %.2f GB/s%n", capture, size, t * 1e-9, (double) size / t);
+            if (size != in.size ()) {
+                System.out.println ("Dropped " + (in.size () - size) + " bytes of an incomplete last frame");
+            }
+        } finally {
+            for (FileChannel c : out) {
+                if (c != null) c.close ();
+            }
+        }
+    }
+
+    static final class Reference implements Demux
+    {
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert src.length % NUM_TIMESLOTS == 0;
+
+            int dst_pos = 0;
+            int dst_num = 0;
+            for (byte b : src) {
+                dst [dst_num][dst_pos] = b;
+                if (++ dst_num == NUM_TIMESLOTS) {
+                    dst_num = 0;
+                    ++ dst_pos;
+                }
+            }
+        }
+    }
+
+    static final class Src_First_1 implements Demux
+    {
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert src.length % NUM_TIMESLOTS == 0;
+
+            int src_pos = 0;
+            int dst_pos = 0;
+            while (src_pos < src.length) {
+                for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
+                    dst [dst_num][dst_pos] = src [src_pos ++];
+                }
+                ++ dst_pos;
+            }
+        }
+    }
+
+    static final class Src_First_2 implements Demux
+    {
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert src.length % NUM_TIMESLOTS == 0;
+            
+            for (int dst_pos = 0; dst_pos < src.length / NUM_TIMESLOTS; ++ dst_pos) {
+                for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
+                    dst [dst_num][dst_pos] = src [dst_pos * NUM_TIMESLOTS + dst_num];
+                }
+            }
+        }
+    }
+
+    static final class Src_First_3 implements Demux
+    {
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert src.length % NUM_TIMESLOTS == 0;
+
+            for (int i = 0; i < src.length; i++) {
+                dst [i % NUM_TIMESLOTS][i / NUM_TIMESLOTS] = src [i];
+            }
+        }
+    }
+
+    static final class Dst_First_1 implements Demux
+    {
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert src.length % NUM_TIMESLOTS == 0;
+
+            for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
+                for (int dst_pos = 0; dst_pos < src.length / NUM_TIMESLOTS; ++ dst_pos) {
+                    dst [dst_num][dst_pos] = src [dst_pos * NUM_TIMESLOTS + dst_num];
+                }
+            }
+        }
+    }
+
+    static final class Dst_First_2 implements Demux
+    {
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert src.length % NUM_TIMESLOTS == 0;
+
+            int dst_size = src.length / NUM_TIMESLOTS;
+            for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
+                byte [] d = dst [dst_num];
+                int src_pos = dst_num;
+                for (int dst_pos = 0; dst_pos < dst_size; ++ dst_pos) {
+                    d[dst_pos] = src[src_pos];
+                    src_pos += NUM_TIMESLOTS;
+                }
+            }
+        }
+    }
+
+    static final class Dst_First_3 implements Demux
+    {
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert src.length == NUM_TIMESLOTS * DST_SIZE;
+
+            for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
+                for (int dst_pos = 0; dst_pos < DST_SIZE; ++ dst_pos) {
+                    dst [dst_num][dst_pos] = src [dst_pos * NUM_TIMESLOTS + dst_num];
+                }
+            }
+        }
+    }
+
+    static final class Unrolled_1 implements Demux
+    {
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert NUM_TIMESLOTS == 32;
+            assert DST_SIZE == 64;
+            assert src.length == NUM_TIMESLOTS * DST_SIZE;
+
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                final byte[] d = dst[j];
+                d[ 0] = src[j+32* 0]; d[ 1] = src[j+32* 1]; d[ 2] = src[j+32* 2]; d[ 3] = src[j+32* 3];
+                d[ 4] = src[j+32* 4]; d[ 5] = src[j+32* 5]; d[ 6] = src[j+32* 6]; d[ 7] = src[j+32* 7];
+                d[ 8] = src[j+32* 8]; d[ 9] = src[j+32* 9]; d[10] = src[j+32*10]; d[11] = src[j+32*11];
+                d[12] = src[j+32*12]; d[13] = src[j+32*13]; d[14] = src[j+32*14]; d[15] = src[j+32*15];
+                d[16] = src[j+32*16]; d[17] = src[j+32*17]; d[18] = src[j+32*18]; d[19] = src[j+32*19];
+                d[20] = src[j+32*20]; d[21] = src[j+32*21]; d[22] = src[j+32*22]; d[23] = src[j+32*23];
+                d[24] = src[j+32*24]; d[25] = src[j+32*25]; d[26] = src[j+32*26]; d[27] = src[j+32*27];
+                d[28] = src[j+32*28]; d[29] = src[j+32*29]; d[30] = src[j+32*30]; d[31] = src[j+32*31];
+                d[32] = src[j+32*32]; d[33] = src[j+32*33]; d[34] = src[j+32*34]; d[35] = src[j+32*35];
+                d[36] = src[j+32*36]; d[37] = src[j+32*37]; d[38] = src[j+32*38]; d[39] = src[j+32*39];
+                d[40] = src[j+32*40]; d[41] = src[j+32*41]; d[42] = src[j+32*42]; d[43] = src[j+32*43];
+                d[44] = src[j+32*44]; d[45] = src[j+32*45]; d[46] = src[j+32*46]; d[47] = src[j+32*47];
+                d[48] = src[j+32*48]; d[49] = src[j+32*49]; d[50] = src[j+32*50]; d[51] = src[j+32*51];
+                d[52] = src[j+32*52]; d[53] = src[j+32*53]; d[54] = src[j+32*54]; d[55] = src[j+32*55];
+                d[56] = src[j+32*56]; d[57] = src[j+32*57]; d[58] = src[j+32*58]; d[59] = src[j+32*59];
+                d[60] = src[j+32*60]; d[61] = src[j+32*61]; d[62] = src[j+32*62]; d[63] = src[j+32*63];
+            }
+        }
+    }
+
+    static final class Unrolled_2_Full implements Demux
+    {
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert NUM_TIMESLOTS == 32;
+            assert DST_SIZE == 64;
+            assert src.length == NUM_TIMESLOTS * DST_SIZE;
+
+            byte[] d;
+            d = dst[0];
+            d = dst[0];
+            d[ 0] = src[   0]; d[ 1] = src[  32]; d[ 2] = src[  64]; d[ 3] = src[  96];
+            d[ 4] = src[ 128]; d[ 5] = src[ 160]; d[ 6] = src[ 192]; d[ 7] = src[ 224];
+            d[ 8] = src[ 256]; d[ 9] = src[ 288]; d[10] = src[ 320]; d[11] = src[ 352];
+            d[12] = src[ 384]; d[13] = src[ 416]; d[14] = src[ 448]; d[15] = src[ 480];
+            d[16] = src[ 512]; d[17] = src[ 544]; d[18] = src[ 576]; d[19] = src[ 608];
+            d[20] = src[ 640]; d[21] = src[ 672]; d[22] = src[ 704]; d[23] = src[ 736];
+            d[24] = src[ 768]; d[25] = src[ 800]; d[26] = src[ 832]; d[27] = src[ 864];
+            d[28] = src[ 896]; d[29] = src[ 928]; d[30] = src[ 960]; d[31] = src[ 992];
+            d[32] = src[1024]; d[33] = src[1056]; d[34] = src[1088]; d[35] = src[1120];
             d[36] = src[1152]; d[37] = src[1184]; d[38] = src[1216]; d[39] = src[1248];
             d[40] = src[1280]; d[41] = src[1312]; d[42] = src[1344]; d[43] = src[1376];
             d[44] = src[1408]; d[45] = src[1440]; d[46] = src[1472]; d[47] = src[1504];
@@ -2095,22 +4016,3081 @@ public final class E1
         }
     }
 
-    public static void main (String [] args) 
+    static final class Swar_8x8 implements OffsetDemux
+    {
+        private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle (long[].class, ByteOrder.LITTLE_ENDIAN);
+
+        public void demux (byte[] src, byte[][] dst)
+        {
+            demux (src, 0, src.length, dst);
+        }
+
+        public void demux (byte[] src, int off, int len, byte[][] dst)
+        {
+            assert NUM_TIMESLOTS % 8 == 0;
+            assert len % (NUM_TIMESLOTS * 8) == 0;
+
+            int dst_size = len / NUM_TIMESLOTS;
+            // Timeslot groups outside, so that the eight rows of a group are loaded once per call
+            for (int j = 0; j < NUM_TIMESLOTS; j += 8) {
+                transpose (src, off, j, NUM_TIMESLOTS, dst_size, dst, null, null);
+            }
+        }
+
+        /** Transposes the 8 columns of src starting at column j (rows stride bytes long, 8 rows at a time)
+          * into dst [j] .. dst [j + 7], dst_size bytes each. Shared by the Swar kernels that store whole groups.
+          */
+        static void transpose (byte[] src, int j, int stride, int dst_size, byte[][] dst)
+        {
+            transpose (src, 0, j, stride, dst_size, dst, null, null);
+        }
+
+        /** transpose () from 8 columns of src into rows j .. j + 7 of the channel-major flat, dst_size bytes each */
+        static void transpose (byte[] src, int j, int stride, int dst_size, byte[] flat)
+        {
+            transpose (src, 0, j, stride, dst_size, null, null, flat);
+        }
+
+        /** transpose () into row dst [j + k] from offset offsets [j + k], such as a ring buffer's head */
+        static void transpose (byte[] src, int j, int stride, int dst_size, byte[][] dst, int[] offsets)
+        {
+            transpose (src, 0, j, stride, dst_size, dst, offsets, null);
+        }
+
+        /** The one loop behind every transpose (): the interleaved data starts at a [off], the rows are
+          * rows [j + k] from offsets [j + k] (0 if offsets is null) or, if rows is null, the channel-major flat
+          * from offset (j + k) * size. Each row and its offset are hoisted out of the loop.
+          */
+        private static void transpose (byte[] a, int off, int j, int stride, int size, byte[][] rows, int[] offsets,
+                                       byte[] flat)
+        {
+            byte[] r0 = flat, r1 = flat, r2 = flat, r3 = flat, r4 = flat, r5 = flat, r6 = flat, r7 = flat;
+            int o0 = 0, o1 = 0, o2 = 0, o3 = 0, o4 = 0, o5 = 0, o6 = 0, o7 = 0;
+            if (rows != null) {
+                r0 = rows[j+0]; r1 = rows[j+1]; r2 = rows[j+2]; r3 = rows[j+3];
+                r4 = rows[j+4]; r5 = rows[j+5]; r6 = rows[j+6]; r7 = rows[j+7];
+                if (offsets != null) {
+                    o0 = offsets[j+0]; o1 = offsets[j+1]; o2 = offsets[j+2]; o3 = offsets[j+3];
+                    o4 = offsets[j+4]; o5 = offsets[j+5]; o6 = offsets[j+6]; o7 = offsets[j+7];
+                }
+            } else {
+                o0 = (j + 0) * size; o1 = (j + 1) * size; o2 = (j + 2) * size; o3 = (j + 3) * size;
+                o4 = (j + 4) * size; o5 = (j + 5) * size; o6 = (j + 6) * size; o7 = (j + 7) * size;
+            }
+            for (int pos = 0; pos < size; pos += 8) {
+                int p = off + pos * stride + j;
+                long[] x = new long [8];
+                x[0] = (long) LONGS.get (a, p + stride * 0);
+                x[1] = (long) LONGS.get (a, p + stride * 1);
+                x[2] = (long) LONGS.get (a, p + stride * 2);
+                x[3] = (long) LONGS.get (a, p + stride * 3);
+                x[4] = (long) LONGS.get (a, p + stride * 4);
+                x[5] = (long) LONGS.get (a, p + stride * 5);
+                x[6] = (long) LONGS.get (a, p + stride * 6);
+                x[7] = (long) LONGS.get (a, p + stride * 7);
+                network (x);
+                LONGS.set (r0, o0 + pos, x[0]);
+                LONGS.set (r1, o1 + pos, x[1]);
+                LONGS.set (r2, o2 + pos, x[2]);
+                LONGS.set (r3, o3 + pos, x[3]);
+                LONGS.set (r4, o4 + pos, x[4]);
+                LONGS.set (r5, o5 + pos, x[5]);
+                LONGS.set (r6, o6 + pos, x[6]);
+                LONGS.set (r7, o7 + pos, x[7]);
+            }
+        }
+
+        /** The 8x8 byte transpose of the little-endian longs x [0] .. x [7] in place: byte k of x [r] and byte r
+          * of x [k] change places. The one copy of the network for every Swar kernel. Callers allocate x inside
+          * their loop and index it with constants only; C2 then inlines network () and keeps the eight longs in
+          * registers, so that nothing is allocated (an array indexed in a loop, or kept across iterations, is).
+          */
+        static void network (long[] x)
+        {
+            // Swap 4x4 blocks
+            swap (x, 0, 4, 32, 0x00000000FFFFFFFFL); swap (x, 1, 5, 32, 0x00000000FFFFFFFFL);
+            swap (x, 2, 6, 32, 0x00000000FFFFFFFFL); swap (x, 3, 7, 32, 0x00000000FFFFFFFFL);
+            // Swap 2x2 blocks
+            swap (x, 0, 2, 16, 0x0000FFFF0000FFFFL); swap (x, 1, 3, 16, 0x0000FFFF0000FFFFL);
+            swap (x, 4, 6, 16, 0x0000FFFF0000FFFFL); swap (x, 5, 7, 16, 0x0000FFFF0000FFFFL);
+            // Swap single bytes
+            swap (x, 0, 1, 8, 0x00FF00FF00FF00FFL); swap (x, 2, 3, 8, 0x00FF00FF00FF00FFL);
+            swap (x, 4, 5, 8, 0x00FF00FF00FF00FFL); swap (x, 6, 7, 8, 0x00FF00FF00FF00FFL);
+        }
+
+        private static void swap (long[] x, int a, int b, int shift, long mask)
+        {
+            long t = ((x[a] >>> shift) ^ x[b]) & mask;
+            x[a] ^= t << shift;
+            x[b] ^= t;
+        }
+
+        /** transpose () in reverse, for Mux_Swar_8x8: rows [j] .. rows [j + 7], size bytes each,
+          * are interleaved into 8 columns of a starting at column j, rows stride bytes long. The network is its
+          * own inverse; it is a loop of its own so that the demux loop, which shares a JVM with it when both
+          * directions run, carries no direction test and keeps its own profile.
+          */
+        static void transpose_mux (byte[] a, int j, int stride, int size, byte[][] rows)
+        {
+            final byte[] r0 = rows[j+0], r1 = rows[j+1], r2 = rows[j+2], r3 = rows[j+3];
+            final byte[] r4 = rows[j+4], r5 = rows[j+5], r6 = rows[j+6], r7 = rows[j+7];
+            for (int pos = 0; pos < size; pos += 8) {
+                long[] x = new long [8];
+                x[0] = (long) LONGS.get (r0, pos);
+                x[1] = (long) LONGS.get (r1, pos);
+                x[2] = (long) LONGS.get (r2, pos);
+                x[3] = (long) LONGS.get (r3, pos);
+                x[4] = (long) LONGS.get (r4, pos);
+                x[5] = (long) LONGS.get (r5, pos);
+                x[6] = (long) LONGS.get (r6, pos);
+                x[7] = (long) LONGS.get (r7, pos);
+                network (x);
+                int p = pos * stride + j;
+                LONGS.set (a, p + stride * 0, x[0]);
+                LONGS.set (a, p + stride * 1, x[1]);
+                LONGS.set (a, p + stride * 2, x[2]);
+                LONGS.set (a, p + stride * 3, x[3]);
+                LONGS.set (a, p + stride * 4, x[4]);
+                LONGS.set (a, p + stride * 5, x[5]);
+                LONGS.set (a, p + stride * 6, x[6]);
+                LONGS.set (a, p + stride * 7, x[7]);
+            }
+        }
+    }
+
+    /** Swar_8x8 restricted to the timeslots set in a mask (bit j for TS j); rows outside the mask are neither
+      * written nor read, so they may be null. Groups of eight timeslots with at least SWAR_ROWS selected rows
+      * are transposed, the remaining rows are copied one at a time, so the cost follows the number of selected
+      * timeslots. Groups are the outer loop, as in Swar_8x8; the full mask is plain Swar_8x8.
+      * Dense groups (all four of ALL_BUT_TS0_TS16) store without a test per row: a group of eight goes through
+      * Swar_8x8.transpose (), a group of seven without its first row (TS0 or TS16) through transpose_dense ().
+      * Only the sparser groups go through transpose_masked (), which tests each row on every store.
+      */
+    static final class Masked_Swar_8x8 implements Demux
+    {
+        static final int ALL = 0xFFFFFFFF;
+        static final int ALL_BUT_TS0_TS16 = 0xFFFEFFFE;
+        static final int SWAR_ROWS = 3;
+
+        private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle (long[].class, ByteOrder.LITTLE_ENDIAN);
+
+        final int mask;
+        private final int[] dense;                                               // first timeslot of each FF or FE group
+        private final boolean[] dense_full;                                      // true for FF: row 0 is stored as well
+        private final int[] groups;                                              // first timeslot of each sparser group
+        private final int[] group_masks;                                         // eight bits, one per row of the group
+        private final int[] rows;                                                // timeslots copied one by one
+        private final Swar_8x8 all = new Swar_8x8 ();
+
+        Masked_Swar_8x8 (int mask)
+        {
+            assert NUM_TIMESLOTS == 32;
+
+            this.mask = mask;
+            List<Integer> d = new ArrayList<Integer> ();
+            List<Integer> g = new ArrayList<Integer> ();
+            List<Integer> r = new ArrayList<Integer> ();
+            for (int j = 0; j < NUM_TIMESLOTS; j += 8) {
+                int m = mask >>> j & 0xFF;
+                if (m == 0xFF || m == 0xFE) {
+                    d.add (j);
+                } else if (Integer.bitCount (m) >= SWAR_ROWS) {
+                    g.add (j);
+                } else {
+                    for (; m != 0; m &= m - 1) r.add (j + Integer.numberOfTrailingZeros (m));
+                }
+            }
+            dense = d.stream ().mapToInt (Integer::intValue).toArray ();
+            dense_full = new boolean [dense.length];
+            for (int n = 0; n < dense.length; n++) dense_full [n] = (mask >>> dense [n] & 1) != 0;
+            groups = g.stream ().mapToInt (Integer::intValue).toArray ();
+            group_masks = g.stream ().mapToInt (j -> mask >>> j & 0xFF).toArray ();
+            rows = r.stream ().mapToInt (Integer::intValue).toArray ();
+        }
+
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert src.length % (NUM_TIMESLOTS * 8) == 0;
+
+            if (mask == ALL) {
+                all.demux (src, dst);
+                return;
+            }
+            int dst_size = src.length / NUM_TIMESLOTS;
+            for (int n = 0; n < dense.length; n++) {
+                if (dense_full [n]) {
+                    Swar_8x8.transpose (src, dense [n], NUM_TIMESLOTS, dst_size, dst);
+                } else {
+                    transpose_dense (src, dense [n], dst_size, dst);
+                }
+            }
+            for (int n = 0; n < groups.length; n++) {
+                transpose_masked (src, groups [n], dst_size, dst, group_masks [n]);
+            }
+            for (int j : rows) {
+                final byte[] d = dst[j];
+                int src_pos = j;
+                for (int dst_pos = 0; dst_pos < dst_size; ++ dst_pos) {
+                    d[dst_pos] = src[src_pos];
+                    src_pos += NUM_TIMESLOTS;
+                }
+            }
+        }
+
+        /** Number of groups stored without a test per row */
+        int dense_groups ()
+        {
+            return dense.length;
+        }
+
+        /** Swar_8x8.network () over the group at column j into rows j + 1 .. j + 7; row j is neither read nor written */
+        private static void transpose_dense (byte[] src, int j, int dst_size, byte[][] dst)
+        {
+            final byte[] d1 = dst[j+1], d2 = dst[j+2], d3 = dst[j+3], d4 = dst[j+4];
+            final byte[] d5 = dst[j+5], d6 = dst[j+6], d7 = dst[j+7];
+            for (int dst_pos = 0; dst_pos < dst_size; dst_pos += 8) {
+                int p = dst_pos * NUM_TIMESLOTS + j;
+                long[] x = new long [8];
+                x[0] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 0);
+                x[1] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 1);
+                x[2] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 2);
+                x[3] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 3);
+                x[4] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 4);
+                x[5] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 5);
+                x[6] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 6);
+                x[7] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 7);
+                Swar_8x8.network (x);
+                LONGS.set (d1, dst_pos, x[1]);
+                LONGS.set (d2, dst_pos, x[2]);
+                LONGS.set (d3, dst_pos, x[3]);
+                LONGS.set (d4, dst_pos, x[4]);
+                LONGS.set (d5, dst_pos, x[5]);
+                LONGS.set (d6, dst_pos, x[6]);
+                LONGS.set (d7, dst_pos, x[7]);
+            }
+        }
+
+        /** Swar_8x8.network () over the group at column j, storing row j + k only if bit k of mask is set */
+        private static void transpose_masked (byte[] src, int j, int dst_size, byte[][] dst, int mask)
+        {
+            final byte[] d0 = (mask & 0x01) != 0 ? dst[j+0] : null;
+            final byte[] d1 = (mask & 0x02) != 0 ? dst[j+1] : null;
+            final byte[] d2 = (mask & 0x04) != 0 ? dst[j+2] : null;
+            final byte[] d3 = (mask & 0x08) != 0 ? dst[j+3] : null;
+            final byte[] d4 = (mask & 0x10) != 0 ? dst[j+4] : null;
+            final byte[] d5 = (mask & 0x20) != 0 ? dst[j+5] : null;
+            final byte[] d6 = (mask & 0x40) != 0 ? dst[j+6] : null;
+            final byte[] d7 = (mask & 0x80) != 0 ? dst[j+7] : null;
+            for (int dst_pos = 0; dst_pos < dst_size; dst_pos += 8) {
+                int p = dst_pos * NUM_TIMESLOTS + j;
+                long[] x = new long [8];
+                x[0] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 0);
+                x[1] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 1);
+                x[2] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 2);
+                x[3] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 3);
+                x[4] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 4);
+                x[5] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 5);
+                x[6] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 6);
+                x[7] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 7);
+                Swar_8x8.network (x);
+                if (d0 != null) LONGS.set (d0, dst_pos, x[0]);
+                if (d1 != null) LONGS.set (d1, dst_pos, x[1]);
+                if (d2 != null) LONGS.set (d2, dst_pos, x[2]);
+                if (d3 != null) LONGS.set (d3, dst_pos, x[3]);
+                if (d4 != null) LONGS.set (d4, dst_pos, x[4]);
+                if (d5 != null) LONGS.set (d5, dst_pos, x[5]);
+                if (d6 != null) LONGS.set (d6, dst_pos, x[6]);
+                if (d7 != null) LONGS.set (d7, dst_pos, x[7]);
+            }
+        }
+    }
+
+    /** Demux for fractional E1 (Nx64 kbit/s bundles): dst [g] receives the bytes of the timeslots in groups [g],
+      * in line order, frame after frame: dst [g][f * n + i] = src [f * NUM_TIMESLOTS + groups [g][i]], n being the
+      * size of the group. Contiguous groups (such as TS1-TS8) are copied eight or four bytes at a time with
+      * unaligned loads and stores; any other group goes a byte at a time through its timeslot list.
+      * src must not be one of the dst rows.
+      */
+    static final class Nx64_Demux implements Demux
+    {
+        private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle (long[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle (int[].class, ByteOrder.LITTLE_ENDIAN);
+
+        private final int[][] groups;
+        private final boolean[] contiguous;
+
+        Nx64_Demux (int[]... groups)
+        {
+            this.groups = new int [groups.length][];
+            this.contiguous = new boolean [groups.length];
+            for (int g = 0; g < groups.length; g++) {
+                int[] ts = groups [g];
+                if (ts.length == 0) {
+                    throw new IllegalArgumentException ("Empty group " + g);
+                }
+                boolean c = true;
+                for (int i = 0; i < ts.length; i++) {
+                    if (ts [i] < 0 || ts [i] >= NUM_TIMESLOTS) {
+                        throw new IllegalArgumentException ("Timeslot " + ts [i] + " out of range in group " + g);
+                    }
+                    c &= ts [i] == ts [0] + i;
+                }
+                this.groups [g] = ts.clone ();
+                this.contiguous [g] = c;
+            }
+        }
+
+        /** TS first .. TS first + n - 1 */
+        static int[] range (int first, int n)
+        {
+            int[] ts = new int [n];
+            for (int i = 0; i < n; i++) ts [i] = first + i;
+            return ts;
+        }
+
+        int size (int group)
+        {
+            return groups [group].length;
+        }
+
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert src.length % NUM_TIMESLOTS == 0;
+
+            int frames = src.length / NUM_TIMESLOTS;
+            for (int g = 0; g < groups.length; g++) {
+                int[] ts = groups [g];
+                byte[] d = dst [g];
+                if (d.length < frames * ts.length) {
+                    throw new IllegalArgumentException ("Group " + g + " needs " + frames * ts.length + " bytes");
+                }
+                if (! contiguous [g]) {
+                    scattered (src, frames, ts, d);
+                } else if (ts.length == 8) {
+                    int s = ts [0];
+                    for (int f = 0; f < frames; f++, s += NUM_TIMESLOTS) {
+                        LONGS.set (d, f * 8, (long) LONGS.get (src, s));
+                    }
+                } else if (ts.length == 4) {
+                    int s = ts [0];
+                    for (int f = 0; f < frames; f++, s += NUM_TIMESLOTS) {
+                        INTS.set (d, f * 4, (int) INTS.get (src, s));
+                    }
+                } else {
+                    contiguous (src, frames, ts [0], ts.length, d);
+                }
+            }
+        }
+
+        /** The last word of a frame overlaps the previous one rather than finishing with single bytes */
+        private static void contiguous (byte[] src, int frames, int first, int n, byte[] d)
+        {
+            int dst_pos = 0;
+            for (int f = 0, s = first; f < frames; f++, s += NUM_TIMESLOTS) {
+                if (n >= 8) {
+                    for (int i = 0; i < n - 8; i += 8) {
+                        LONGS.set (d, dst_pos + i, (long) LONGS.get (src, s + i));
+                    }
+                    LONGS.set (d, dst_pos + n - 8, (long) LONGS.get (src, s + n - 8));
+                } else if (n >= 4) {
+                    INTS.set (d, dst_pos, (int) INTS.get (src, s));
+                    INTS.set (d, dst_pos + n - 4, (int) INTS.get (src, s + n - 4));
+                } else {
+                    for (int i = 0; i < n; i++) d [dst_pos + i] = src [s + i];
+                }
+                dst_pos += n;
+            }
+        }
+
+        private static void scattered (byte[] src, int frames, int[] ts, byte[] d)
+        {
+            int dst_pos = 0;
+            for (int s = 0; s < frames * NUM_TIMESLOTS; s += NUM_TIMESLOTS) {
+                for (int t : ts) {
+                    d [dst_pos++] = src [s + t];
+                }
+            }
+        }
+    }
+
+    /** Swar_8x8 that also finds idle channels: demux_idle () returns bit j set when every byte of row j is quiet.
+      * A byte b is quiet when ((b ^ code) & sign) < level, tested for eight bytes at once on the transposed longs,
+      * so the test costs a few operations per long already in registers. With sign = 0xFF and level = 1 that is
+      * "equal to the idle code"; A-law and mu-law codes XOR-ed with 0x55 or 0xFF, sign bit dropped, grow with the
+      * amplitude, which gives a peak-level test for silence.
+      */
+    static final class Idle_Swar_8x8 implements Demux
+    {
+        private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle (long[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final long HIGH = 0x8080808080808080L;
+        private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+        private static final long ONES = 0x0101010101010101L;
+
+        private final long code;
+        private final long sign;
+        private final long add;
+        private int idle;
+
+        /** Quiet bytes: ((b ^ code) & sign) < level, level 1..128 */
+        Idle_Swar_8x8 (int code, int sign, int level)
+        {
+            if (level < 1 || level > 0x80) {
+                throw new IllegalArgumentException ("Level must be 1..128, not " + level);
+            }
+            this.code = (code & 0xFF) * ONES;
+            this.sign = (sign & 0xFF) * ONES;
+            this.add = (0x80 - level) * ONES;
+        }
+
+        /** Every byte equal to code, such as 0xFF for unequipped channels */
+        static Idle_Swar_8x8 idle_code (int code)
+        {
+            return new Idle_Swar_8x8 (code, 0xFF, 1);
+        }
+
+        /** A-law samples of either sign with a magnitude code below level; 2 takes 0xD5, 0x55, 0xD4 and 0x54 */
+        static Idle_Swar_8x8 alaw (int level)
+        {
+            return new Idle_Swar_8x8 (0x55, 0x7F, level);
+        }
+
+        /** mu-law samples of either sign with a magnitude code below level; 1 takes 0xFF and 0x7F */
+        static Idle_Swar_8x8 ulaw (int level)
+        {
+            return new Idle_Swar_8x8 (0xFF, 0x7F, level);
+        }
+
+        public void demux (byte[] src, byte[][] dst)
+        {
+            idle = demux_idle (src, dst);
+        }
+
+        /** The idle mask of the last block passed to demux () */
+        int idle ()
+        {
+            return idle;
+        }
+
+        /** High bit of each byte set where the byte is not quiet */
+        private long loud (long x)
+        {
+            long v = (x ^ code) & sign;
+            return (v | (v & LOW7) + add) & HIGH;
+        }
+
+        int demux_idle (byte[] src, byte[][] dst)
+        {
+            assert NUM_TIMESLOTS == 32;
+            assert src.length % (NUM_TIMESLOTS * 8) == 0;
+
+            int dst_size = src.length / NUM_TIMESLOTS;
+            int mask = 0;
+            // Timeslot groups outside, so that the eight loudness words of a group stay in registers
+            for (int j = 0; j < NUM_TIMESLOTS; j += 8) {
+                long l0 = 0, l1 = 0, l2 = 0, l3 = 0, l4 = 0, l5 = 0, l6 = 0, l7 = 0;
+                for (int dst_pos = 0; dst_pos < dst_size; dst_pos += 8) {
+                    int p = dst_pos * NUM_TIMESLOTS + j;
+                    long[] x = new long [8];
+                    x[0] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 0);
+                    x[1] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 1);
+                    x[2] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 2);
+                    x[3] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 3);
+                    x[4] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 4);
+                    x[5] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 5);
+                    x[6] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 6);
+                    x[7] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 7);
+                    Swar_8x8.network (x);
+
+                    LONGS.set (dst[j+0], dst_pos, x[0]); l0 |= loud (x[0]);
+                    LONGS.set (dst[j+1], dst_pos, x[1]); l1 |= loud (x[1]);
+                    LONGS.set (dst[j+2], dst_pos, x[2]); l2 |= loud (x[2]);
+                    LONGS.set (dst[j+3], dst_pos, x[3]); l3 |= loud (x[3]);
+                    LONGS.set (dst[j+4], dst_pos, x[4]); l4 |= loud (x[4]);
+                    LONGS.set (dst[j+5], dst_pos, x[5]); l5 |= loud (x[5]);
+                    LONGS.set (dst[j+6], dst_pos, x[6]); l6 |= loud (x[6]);
+                    LONGS.set (dst[j+7], dst_pos, x[7]); l7 |= loud (x[7]);
+                }
+                mask |= (l0 == 0 ? 1 : 0) << j     | (l1 == 0 ? 1 : 0) << j + 1
+                      | (l2 == 0 ? 1 : 0) << j + 2 | (l3 == 0 ? 1 : 0) << j + 3
+                      | (l4 == 0 ? 1 : 0) << j + 4 | (l5 == 0 ? 1 : 0) << j + 5
+                      | (l6 == 0 ? 1 : 0) << j + 6 | (l7 == 0 ? 1 : 0) << j + 7;
+            }
+            return mask;
+        }
+    }
+
+    /** Swar_8x8 that also verifies CRC-4. src must start at a FAS frame, as FrameAligner delivers it; each
+      * iteration of the outer loop covers four double frames (8 frames).
+      * x^15 = 1 modulo x^4 + x + 1, so every exponent may be taken modulo 60: the longs already loaded for the
+      * transposition are folded into 60 bits, rotated by their bit distance to the end of their double frame
+      * and XOR-ed into one residue per double frame. A sub-multiframe is the last four residues rotated by
+      * their distance to its end; only the final 15-bit fold needs a table.
+      * CRC-4 multiframe alignment (G.704 2.3.3.4) is found from bit 1 of the NFAS bytes: 001011 at the same
+      * place in two consecutive multiframes. It is lost when the pattern is wrong in MFAS_LOSS consecutive
+      * multiframes, and then hunted for again. Sub-multiframes are checked, and errors counted, only while
+      * aligned, so the window phase of src does not matter.
+      * One instance per link: the counters, the alignment and the last residues carry over between calls.
+      * For that reason it is not one of the stateless implementations ().
+      */
+    static final class Crc4_Swar_8x8 implements Demux
+    {
+        static final int SMF_FRAMES = 8;
+        static final int SMF_SIZE = SMF_FRAMES * NUM_TIMESLOTS;
+        static final int MFAS = 0x0B;                                            // 001011, first NFAS bit first
+        static final int MFAS_LOSS = 2;
+
+        private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle (long[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final long MASK60 = (1L << 60) - 1;
+
+        /** CRC-4 of a 15-bit residue v: v(x) * x^4 mod (x^4 + x + 1), split into the low 8 and the high 7 bits */
+        private static final byte[] CRC_LO = new byte [256];
+        private static final byte[] CRC_HI = new byte [128];
+
+        static {
+            for (int v = 0; v < 256; v++) {
+                CRC_LO [v] = (byte) mod (v, 4);
+                if (v < 128) CRC_HI [v] = (byte) mod (v, 12);
+            }
+        }
+
+        /** v(x) * x^shift mod (x^4 + x + 1) */
+        private static int mod (int v, int shift)
+        {
+            int r = 0;
+            for (int bit = 0; bit < 8; bit++) {
+                if ((v >> bit & 1) == 0) continue;
+                int p = 1;
+                for (int i = 0; i < (bit + shift) % 15; i++) {
+                    p <<= 1;
+                    if ((p & 0x10) != 0) p ^= 0x13;
+                }
+                r ^= p;
+            }
+            return r;
+        }
+
+        /** w(x) * x^k modulo x^60 - 1, for a long w loaded big-endian */
+        private static long rot (long w, int k)
+        {
+            long v = (w & MASK60) ^ (w >>> 60);
+            return (v << k | v >>> (60 - k)) & MASK60;
+        }
+
+        private long r1, r2, r3;                                                 // residues of the last three double frames
+        private int c_bits = 0;                                                  // C bits of the last four, oldest highest
+        private int nfas = 0;                                                    // bit 1 of NFAS, one per double frame
+        private int mf_pos = -1;                                                 // double frame in the multiframe; -1 hunting
+        private int misses = 0;
+        private long losses = 0;
+        private int prev = -1;
+        private long smfs = 0;
+        private long errors = 0;
+
+        /** Sub-multiframes whose CRC-4 has been checked */
+        long submultiframes ()
+        {
+            return smfs;
+        }
+
+        long crc_errors ()
+        {
+            return errors;
+        }
+
+        boolean multiframe_aligned ()
+        {
+            return mf_pos >= 0;
+        }
+
+        /** Losses of CRC-4 multiframe alignment */
+        long multiframe_losses ()
+        {
+            return losses;
+        }
+
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert NUM_TIMESLOTS == 32;
+            assert src.length % SMF_SIZE == 0;
+
+            int dst_size = src.length / NUM_TIMESLOTS;
+            for (int dst_pos = 0; dst_pos < dst_size; dst_pos += 8) {
+                long v0 = 0, v1 = 0, v2 = 0, v3 = 0;
+                for (int j = 0; j < NUM_TIMESLOTS; j += 8) {
+                    int p = dst_pos * NUM_TIMESLOTS + j;
+                    long[] x = new long [8];
+                    x[0] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 0);
+                    x[1] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 1);
+                    x[2] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 2);
+                    x[3] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 3);
+                    x[4] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 4);
+                    x[5] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 5);
+                    x[6] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 6);
+                    x[7] = (long) LONGS.get (src, p + NUM_TIMESLOTS * 7);
+
+                    // The C bits (bit 1 of TS0 in FAS frames) count as zero.
+                    // The long of the FAS frame starts 8 * (56 - j) = 28 - j/2 bits (mod 60) before the end of
+                    // its double frame, the long of the NFAS frame 8 * (24 - j) = 12 - j/2 bits.
+                    long c = j == 0 ? ~0x80L : -1L;
+                    int k0 = 28 - j / 2, k1 = 12 - j / 2;
+                    v0 ^= rot (Long.reverseBytes (x[0] & c), k0) ^ rot (Long.reverseBytes (x[1]), k1);
+                    v1 ^= rot (Long.reverseBytes (x[2] & c), k0) ^ rot (Long.reverseBytes (x[3]), k1);
+                    v2 ^= rot (Long.reverseBytes (x[4] & c), k0) ^ rot (Long.reverseBytes (x[5]), k1);
+                    v3 ^= rot (Long.reverseBytes (x[6] & c), k0) ^ rot (Long.reverseBytes (x[7]), k1);
+
+                    Swar_8x8.network (x);
+                    LONGS.set (dst[j+0], dst_pos, x[0]);
+                    LONGS.set (dst[j+1], dst_pos, x[1]);
+                    LONGS.set (dst[j+2], dst_pos, x[2]);
+                    LONGS.set (dst[j+3], dst_pos, x[3]);
+                    LONGS.set (dst[j+4], dst_pos, x[4]);
+                    LONGS.set (dst[j+5], dst_pos, x[5]);
+                    LONGS.set (dst[j+6], dst_pos, x[6]);
+                    LONGS.set (dst[j+7], dst_pos, x[7]);
+                }
+                byte[] ts0 = dst [0];
+                double_frame (v0, ts0 [dst_pos + 0], ts0 [dst_pos + 1]);
+                double_frame (v1, ts0 [dst_pos + 2], ts0 [dst_pos + 3]);
+                double_frame (v2, ts0 [dst_pos + 4], ts0 [dst_pos + 5]);
+                double_frame (v3, ts0 [dst_pos + 6], ts0 [dst_pos + 7]);
+            }
+        }
+
+        /** Steps the multiframe by one double frame: v is its residue, fas and nfas_byte its two TS0 bytes */
+        private void double_frame (long v, byte fas, byte nfas_byte)
+        {
+            nfas = nfas << 1 | (nfas_byte & 0x80) >>> 7;
+            c_bits = (c_bits << 1 | (fas & 0x80) >>> 7) & 0xF;
+            if (mf_pos < 0) {
+                // The E bits (the last two NFAS bits of each multiframe) are not part of the pattern
+                if ((nfas >>> 2 & 0x3F) == MFAS && (nfas >>> 10 & 0x3F) == MFAS) {
+                    mf_pos = 7;
+                    misses = 0;
+                    prev = -1;
+                }
+            } else {
+                mf_pos = (mf_pos + 1) & 7;
+                if (mf_pos == 7) {
+                    misses = (nfas >>> 2 & 0x3F) == MFAS ? 0 : misses + 1;
+                    if (misses >= MFAS_LOSS) {
+                        mf_pos = -1;
+                        ++ losses;
+                    }
+                }
+            }
+            if (mf_pos == 3 || mf_pos == 7) {
+                // Double frames 3, 2 and 1 back are 3 * 512, 2 * 512 and 512 bits = 36, 4 and 32 (mod 60) away
+                long w = rot (r3, 36) ^ rot (r2, 4) ^ rot (r1, 32) ^ v;
+                int v15 = (int) ((w ^ w >>> 15 ^ w >>> 30 ^ w >>> 45) & 0x7FFF);
+                int crc = CRC_LO [v15 & 0xFF] ^ CRC_HI [v15 >>> 8];
+
+                // The CRC-4 of each sub-multiframe arrives in the C bits of the next one
+                if (prev >= 0) {
+                    ++ smfs;
+                    if (c_bits != prev) ++ errors;
+                }
+                prev = crc;
+            }
+            r3 = r2;
+            r2 = r1;
+            r1 = v;
+        }
+    }
+
+    static final class Mux_Reference implements Mux
+    {
+        public void mux (byte[][] src, byte[] dst)
+        {
+            assert dst.length % NUM_TIMESLOTS == 0;
+
+            int src_pos = 0;
+            int src_num = 0;
+            for (int i = 0; i < dst.length; i++) {
+                dst [i] = src [src_num][src_pos];
+                if (++ src_num == NUM_TIMESLOTS) {
+                    src_num = 0;
+                    ++ src_pos;
+                }
+            }
+        }
+    }
+
+    static final class Mux_Src_First implements Mux
+    {
+        public void mux (byte[][] src, byte[] dst)
+        {
+            assert dst.length % NUM_TIMESLOTS == 0;
+
+            int src_size = dst.length / NUM_TIMESLOTS;
+            for (int src_num = 0; src_num < NUM_TIMESLOTS; ++ src_num) {
+                byte [] s = src [src_num];
+                int dst_pos = src_num;
+                for (int src_pos = 0; src_pos < src_size; ++ src_pos) {
+                    dst[dst_pos] = s[src_pos];
+                    dst_pos += NUM_TIMESLOTS;
+                }
+            }
+        }
+    }
+
+    static final class Mux_Unrolled_1 implements Mux
+    {
+        public void mux (byte[][] src, byte[] dst)
+        {
+            assert NUM_TIMESLOTS == 32;
+            assert DST_SIZE == 64;
+            assert dst.length == NUM_TIMESLOTS * DST_SIZE;
+
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                final byte[] s = src[j];
+                dst[j+32* 0] = s[ 0]; dst[j+32* 1] = s[ 1]; dst[j+32* 2] = s[ 2]; dst[j+32* 3] = s[ 3];
+                dst[j+32* 4] = s[ 4]; dst[j+32* 5] = s[ 5]; dst[j+32* 6] = s[ 6]; dst[j+32* 7] = s[ 7];
+                dst[j+32* 8] = s[ 8]; dst[j+32* 9] = s[ 9]; dst[j+32*10] = s[10]; dst[j+32*11] = s[11];
+                dst[j+32*12] = s[12]; dst[j+32*13] = s[13]; dst[j+32*14] = s[14]; dst[j+32*15] = s[15];
+                dst[j+32*16] = s[16]; dst[j+32*17] = s[17]; dst[j+32*18] = s[18]; dst[j+32*19] = s[19];
+                dst[j+32*20] = s[20]; dst[j+32*21] = s[21]; dst[j+32*22] = s[22]; dst[j+32*23] = s[23];
+                dst[j+32*24] = s[24]; dst[j+32*25] = s[25]; dst[j+32*26] = s[26]; dst[j+32*27] = s[27];
+                dst[j+32*28] = s[28]; dst[j+32*29] = s[29]; dst[j+32*30] = s[30]; dst[j+32*31] = s[31];
+                dst[j+32*32] = s[32]; dst[j+32*33] = s[33]; dst[j+32*34] = s[34]; dst[j+32*35] = s[35];
+                dst[j+32*36] = s[36]; dst[j+32*37] = s[37]; dst[j+32*38] = s[38]; dst[j+32*39] = s[39];
+                dst[j+32*40] = s[40]; dst[j+32*41] = s[41]; dst[j+32*42] = s[42]; dst[j+32*43] = s[43];
+                dst[j+32*44] = s[44]; dst[j+32*45] = s[45]; dst[j+32*46] = s[46]; dst[j+32*47] = s[47];
+                dst[j+32*48] = s[48]; dst[j+32*49] = s[49]; dst[j+32*50] = s[50]; dst[j+32*51] = s[51];
+                dst[j+32*52] = s[52]; dst[j+32*53] = s[53]; dst[j+32*54] = s[54]; dst[j+32*55] = s[55];
+                dst[j+32*56] = s[56]; dst[j+32*57] = s[57]; dst[j+32*58] = s[58]; dst[j+32*59] = s[59];
+                dst[j+32*60] = s[60]; dst[j+32*61] = s[61]; dst[j+32*62] = s[62]; dst[j+32*63] = s[63];
+            }
+        }
+    }
+
+    static final class Mux_Swar_8x8 implements Mux
+    {
+        public void mux (byte[][] src, byte[] dst)
+        {
+            assert NUM_TIMESLOTS % 8 == 0;
+            assert dst.length % (NUM_TIMESLOTS * 8) == 0;
+
+            int src_size = dst.length / NUM_TIMESLOTS;
+            for (int j = 0; j < NUM_TIMESLOTS; j += 8) {
+                Swar_8x8.transpose_mux (dst, j, NUM_TIMESLOTS, src_size, src);
+            }
+        }
+    }
+
+    static final class Param_Swar_8x8 implements Demux
+    {
+        private final int timeslots;
+        private final int frames;
+
+        Param_Swar_8x8 (int timeslots, int frames)
+        {
+            if (timeslots % 8 != 0) {
+                throw new IllegalArgumentException ("Number of timeslots must be a multiple of 8: " + timeslots);
+            }
+            this.timeslots = timeslots;
+            this.frames = frames;
+        }
+
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert src.length == timeslots * frames;
+            assert dst.length == timeslots;
+
+            final int ts = timeslots;
+            final int whole = frames & ~7;
+            for (int j = 0; j < ts; j += 8) {
+                Swar_8x8.transpose (src, j, ts, whole, dst);
+            }
+            for (int j = 0; j < ts; j++) {
+                byte[] d = dst[j];
+                for (int dst_pos = whole; dst_pos < frames; dst_pos++) {
+                    d[dst_pos] = src[dst_pos * ts + j];
+                }
+            }
+        }
+    }
+
+    static final class Param_Dst_First implements Demux
+    {
+        private final int timeslots;
+        private final int frames;
+
+        Param_Dst_First (int timeslots, int frames)
+        {
+            this.timeslots = timeslots;
+            this.frames = frames;
+        }
+
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert src.length == timeslots * frames;
+            assert dst.length == timeslots;
+
+            final int ts = timeslots;
+            final int n = frames;
+            for (int dst_num = 0; dst_num < ts; ++ dst_num) {
+                final byte[] d = dst [dst_num];
+                int src_pos = dst_num;
+                for (int dst_pos = 0; dst_pos < n; ++ dst_pos) {
+                    d[dst_pos] = src[src_pos];
+                    src_pos += ts;
+                }
+            }
+        }
+    }
+
+    /** Emits Demux kernels as bytecode for a geometry and an unroll shape and loads them as hidden classes.
+      * The class files have version 49, so that the verifier needs no StackMapTable for the loops.
+      */
+    static final class Kernel_Generator
+    {
+        /** HotSpot does not compile bigger methods (-XX:+DontCompileHugeMethods); Unrolled_2_Full is one of them */
+        static final int HUGE_METHOD_LIMIT = 8000;
+
+        /** inner: frames copied per step along a row; outer: rows per step of the timeslot loop;
+          * methods: each row in its own static method (like Unrolled_3) rather than all in demux ()
+          */
+        static final class Shape
+        {
+            final int timeslots;
+            final int frames;
+            final int inner;
+            final int outer;
+            final boolean methods;
+
+            Shape (int timeslots, int frames, int inner, int outer, boolean methods)
+            {
+                if (frames % inner != 0 || timeslots % outer != 0) {
+                    throw new IllegalArgumentException ("Unroll factors must divide the geometry: " + timeslots + "x" + frames
+                                                        + ", inner " + inner + ", outer " + outer);
+                }
+                this.timeslots = timeslots;
+                this.frames = frames;
+                this.inner = inner;
+                this.outer = outer;
+                this.methods = methods;
+            }
+
+            public String toString ()
+            {
+                return timeslots + "x" + frames + ", inner " + inner + (methods ? ", method per row" : ", outer " + outer);
+            }
+        }
+
+        private static final class Constant_Pool
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream ();
+            final Map<String, Integer> entries = new LinkedHashMap<String, Integer> ();
+            int count = 1;
+
+            private int entry (String key, byte[] data)
+            {
+                Integer index = entries.get (key);
+                if (index == null) {
+                    index = count ++;
+                    entries.put (key, index);
+                    bytes.write (data, 0, data.length);
+                }
+                return index;
+            }
+
+            int utf8 (String s)
+            {
+                byte[] b = s.getBytes (java.nio.charset.StandardCharsets.UTF_8);
+                ByteBuffer data = ByteBuffer.allocate (3 + b.length).put ((byte) 1).putShort ((short) b.length).put (b);
+                return entry ("U" + s, data.array ());
+            }
+
+            int integer (int v)
+            {
+                return entry ("I" + v, ByteBuffer.allocate (5).put ((byte) 3).putInt (v).array ());
+            }
+
+            int clazz (String name)
+            {
+                int n = utf8 (name);
+                return entry ("C" + name, ByteBuffer.allocate (3).put ((byte) 7).putShort ((short) n).array ());
+            }
+
+            int method (String owner, String name, String type)
+            {
+                int c = clazz (owner);
+                int n = utf8 (name);
+                int t = utf8 (type);
+                int nt = entry ("N" + name + type, ByteBuffer.allocate (5).put ((byte) 12).putShort ((short) n).putShort ((short) t).array ());
+                return entry ("M" + owner + name + type, ByteBuffer.allocate (5).put ((byte) 10).putShort ((short) c).putShort ((short) nt).array ());
+            }
+        }
+
+        private static final class Code
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream ();
+            final Constant_Pool pool;
+
+            Code (Constant_Pool pool)
+            {
+                this.pool = pool;
+            }
+
+            int pc ()
+            {
+                return bytes.size ();
+            }
+
+            Code op (int... ops)
+            {
+                for (int b : ops) bytes.write (b);
+                return this;
+            }
+
+            Code push (int v)
+            {
+                if (v >= -1 && v <= 5) return op (0x03 + v);                     // iconst_<v>
+                if (v >= -128 && v <= 127) return op (0x10, v & 0xFF);          // bipush
+                if (v >= -32768 && v <= 32767) return op (0x11, v >> 8 & 0xFF, v & 0xFF);   // sipush
+                int i = pool.integer (v);
+                return op (0x13, i >> 8, i & 0xFF);                              // ldc_w
+            }
+
+            Code local (int opcode, int n)
+            {
+                return op (opcode, n);
+            }
+
+            Code iinc (int n, int v)
+            {
+                if (v >= -128 && v <= 127) return op (0x84, n, v & 0xFF);
+                return op (0xC4, 0x84, 0, n, v >> 8 & 0xFF, v & 0xFF);          // wide iinc
+            }
+
+            /** Loads base + v, where base is a local or -1 for none */
+            Code index (int base, int v)
+            {
+                if (base < 0) return push (v);
+                local (ILOAD, base);
+                return v == 0 ? this : push (v).op (0x60);                       // iadd
+            }
+
+            Code branch_back (int opcode, int target)
+            {
+                int offset = target - pc ();
+                if (offset < -32768) {
+                    throw new IllegalArgumentException ("Loop body too big");
+                }
+                return op (opcode, offset >> 8 & 0xFF, offset & 0xFF);
+            }
+        }
+
+        private static final int ILOAD = 0x15, ALOAD = 0x19, ISTORE = 0x36, ASTORE = 0x3A;
+        private static final int AALOAD = 0x32, BALOAD = 0x33, BASTORE = 0x54, IF_ICMPLT = 0xA1, RETURN = 0xB1;
+
+        private static final AtomicInteger counter = new AtomicInteger ();
+
+        /** Copies row t (or row j+t when the row number is in local j) from src to d.
+          * Uses locals k (frame) and sb (source position) when the row needs a loop.
+          */
+        private static void row (Code c, Shape s, int src, int d, int j, int t, int k, int sb)
+        {
+            boolean loop = s.inner < s.frames;
+            int base = -1;
+            if (loop || j >= 0) {
+                c.index (j, t).local (ISTORE, sb);
+                base = sb;
+            }
+            int t0 = base < 0 ? t : 0;
+            int start = 0;
+            if (loop) {
+                c.push (0).local (ISTORE, k);
+                start = c.pc ();
+            }
+            for (int f = 0; f < s.inner; f++) {
+                c.local (ALOAD, d).index (loop ? k : -1, f).local (ALOAD, src).index (base, t0 + s.timeslots * f).op (BALOAD, BASTORE);
+            }
+            if (loop) {
+                c.iinc (k, s.inner).iinc (sb, s.inner * s.timeslots);
+                c.local (ILOAD, k).push (s.frames).branch_back (IF_ICMPLT, start);
+            }
+        }
+
+        private static void method (ByteArrayOutputStream out, Constant_Pool pool, int access, String name, String type,
+                                    Code code, int max_stack, int max_locals)
+        {
+            byte[] b = code.bytes.toByteArray ();
+            ByteBuffer m = ByteBuffer.allocate (8 + 6 + 12 + b.length);
+            m.putShort ((short) access).putShort ((short) pool.utf8 (name)).putShort ((short) pool.utf8 (type)).putShort ((short) 1);
+            m.putShort ((short) pool.utf8 ("Code")).putInt (12 + b.length);
+            m.putShort ((short) max_stack).putShort ((short) max_locals).putInt (b.length).put (b);
+            m.putShort ((short) 0).putShort ((short) 0);
+            out.write (m.array (), 0, m.position ());
+        }
+
+        /** Bytecode size of the largest generated method, to be compared with HUGE_METHOD_LIMIT */
+        static int method_size (Shape s)
+        {
+            int[] size = new int [1];
+            try {
+                bytes (s, "E1$Generated", size);                                 // sizes do not depend on the name
+            } catch (IllegalArgumentException e) {
+                return Integer.MAX_VALUE;                                        // a loop beyond goto range
+            }
+            return size [0];
+        }
+
+        /** The class file of s, named name; max_size [0] gets the bytecode size of its largest method */
+        static byte[] bytes (Shape s, String name, int[] max_size)
+        {
+            Constant_Pool pool = new Constant_Pool ();
+            int this_class = pool.clazz (name);
+            int super_class = pool.clazz ("java/lang/Object");
+            int demux_interface = pool.clazz ("E1$Demux");
+            ByteArrayOutputStream methods = new ByteArrayOutputStream ();
+            int method_count = 0;
+            max_size [0] = 0;
+
+            Code init = new Code (pool);
+            init.local (ALOAD, 0).op (0xB7).op (0, 0).op (RETURN);                // invokespecial patched below
+            byte[] ib = init.bytes.toByteArray ();
+            int object_init = pool.method ("java/lang/Object", "<init>", "()V");
+            ib [3] = (byte) (object_init >> 8);
+            ib [4] = (byte) object_init;
+            init.bytes.reset ();
+            init.bytes.write (ib, 0, ib.length);
+            method (methods, pool, 0x0001, "<init>", "()V", init, 1, 1);
+            ++ method_count;
+
+            Code demux = new Code (pool);
+            if (s.methods) {
+                for (int t = 0; t < s.timeslots; t++) {
+                    Code row = new Code (pool);
+                    row (row, s, 0, 1, -1, t, 2, 3);
+                    row.op (RETURN);
+                    max_size [0] = Math.max (max_size [0], row.pc ());
+                    method (methods, pool, 0x000A, "row_" + t, "([B[B)V", row, 5, 4);     // private static
+                    ++ method_count;
+                    int m = pool.method (name, "row_" + t, "([B[B)V");
+                    demux.local (ALOAD, 1).local (ALOAD, 2).push (t).op (AALOAD).op (0xB8, m >> 8, m & 0xFF);   // invokestatic
+                }
+            } else {
+                boolean loop = s.outer < s.timeslots;
+                int start = 0;
+                if (loop) {
+                    demux.push (0).local (ISTORE, 3);
+                    start = demux.pc ();
+                }
+                for (int t = 0; t < s.outer; t++) {
+                    demux.local (ALOAD, 2).index (loop ? 3 : -1, t).op (AALOAD).local (ASTORE, 4);
+                    row (demux, s, 1, 4, loop ? 3 : -1, t, 5, 6);
+                }
+                if (loop) {
+                    demux.iinc (3, s.outer).local (ILOAD, 3).push (s.timeslots).branch_back (IF_ICMPLT, start);
+                }
+            }
+            demux.op (RETURN);
+            max_size [0] = Math.max (max_size [0], demux.pc ());
+            if (demux.pc () > 65535) {
+                throw new IllegalArgumentException ("Method too big: " + s);
+            }
+            method (methods, pool, 0x0001, "demux", "([B[[B)V", demux, 5, 7);
+            ++ method_count;
+
+            ByteBuffer cf = ByteBuffer.allocate (10 + pool.bytes.size () + 12 + 2 + methods.size () + 2);
+            cf.putInt (0xCAFEBABE).putShort ((short) 0).putShort ((short) 49);
+            cf.putShort ((short) pool.count).put (pool.bytes.toByteArray ());
+            cf.putShort ((short) 0x0031).putShort ((short) this_class).putShort ((short) super_class);   // public final super
+            cf.putShort ((short) 1).putShort ((short) demux_interface);
+            cf.putShort ((short) 0);
+            cf.putShort ((short) method_count).put (methods.toByteArray ());
+            cf.putShort ((short) 0);
+            return cf.array ();
+        }
+
+        static Demux generate (Shape s)
+        {
+            try {
+                String name = "E1$Generated_" + counter.getAndIncrement ();
+                MethodHandles.Lookup lookup = MethodHandles.lookup ().defineHiddenClass (bytes (s, name, new int [1]), true);
+                return (Demux) lookup.findConstructor (lookup.lookupClass (), java.lang.invoke.MethodType.methodType (void.class)).invoke ();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException ("Cannot load generated kernel " + s, e);
+            }
+        }
+
+        static Demux generate (int timeslots, int frames, int inner, int outer, boolean methods)
+        {
+            return generate (new Shape (timeslots, frames, inner, outer, methods));
+        }
+
+        /** All shapes whose methods stay within HUGE_METHOD_LIMIT. inner runs over every divisor of frames from 8 up
+          * (or from 1 when there are fewer frames), outer over every divisor of timeslots; inner = frames is always
+          * a candidate, so prime frame counts get shapes too. Empty when even the smallest method is too big.
+          */
+        static List<Shape> shapes (int timeslots, int frames)
+        {
+            List<Shape> shapes = new ArrayList<Shape> ();
+            for (int inner = Math.min (frames, 8); inner <= frames; inner++) {
+                if (frames % inner != 0) continue;
+                for (int outer = 1; outer <= timeslots; outer++) {
+                    if (timeslots % outer != 0) continue;
+                    Shape s = new Shape (timeslots, frames, inner, outer, false);
+                    if (method_size (s) <= HUGE_METHOD_LIMIT) shapes.add (s);
+                }
+                Shape s = new Shape (timeslots, frames, inner, 1, true);
+                if (method_size (s) <= HUGE_METHOD_LIMIT) shapes.add (s);
+            }
+            return shapes;
+        }
+
+        /** The shape used without a search: one row per step and the largest divisor of frames up to 64 frames
+          * per step (a whole row like Unrolled_1 when frames <= 64), or the smallest candidate step if none is
+          * that small. null when no shape fits within HUGE_METHOD_LIMIT.
+          */
+        static Shape default_shape (int timeslots, int frames)
+        {
+            Shape best = null;
+            for (Shape s : shapes (timeslots, frames)) {
+                if (s.methods || s.outer != 1) continue;
+                if (best == null || (s.inner <= 64 ? best.inner > 64 || s.inner > best.inner
+                                                   : best.inner > 64 && s.inner < best.inner)) {
+                    best = s;
+                }
+            }
+            return best;
+        }
+
+        /** Param_Swar_8x8 or Param_Dst_First, for geometries no unrolled shape fits */
+        static Demux parameterised (int timeslots, int frames)
+        {
+            return timeslots % 8 == 0 ? new Param_Swar_8x8 (timeslots, frames) : new Param_Dst_First (timeslots, frames);
+        }
+
+        private static final Map<String, Demux> defaults = new java.util.concurrent.ConcurrentHashMap<String, Demux> ();
+
+        /** The kernel of default_shape (), generated once per geometry and cached. As in search (), the kernel
+          * is built outside the map; two threads asking at once may both build one, and the first stays.
+          */
+        static Demux generated (int timeslots, int frames)
+        {
+            String key = timeslots + "x" + frames;
+            Demux demux = defaults.get (key);
+            if (demux != null) {
+                return demux;
+            }
+            Shape s = default_shape (timeslots, frames);
+            demux = s != null ? generate (s) : parameterised (timeslots, frames);
+            Demux earlier = defaults.putIfAbsent (key, demux);
+            return earlier != null ? earlier : demux;
+        }
+
+        private static final Map<String, Demux> best = new java.util.concurrent.ConcurrentHashMap<String, Demux> ();
+
+        /** The kernel an earlier search () chose for this geometry, or null */
+        static Demux searched (int timeslots, int frames)
+        {
+            return best.get (timeslots + "x" + frames);
+        }
+
+        /** Times every shape on this CPU and JVM and keeps the fastest; the result is cached per geometry.
+          * The search runs outside the map, so two threads asking at once may both search; the first result stays.
+          * When no shape fits within HUGE_METHOD_LIMIT, the parameterised kernel is kept instead.
+          */
+        static Demux search (int timeslots, int frames, boolean verbose)
+        {
+            String key = timeslots + "x" + frames;
+            Demux demux = best.get (key);
+            if (demux != null) {
+                return demux;
+            }
+            List<Shape> shapes = shapes (timeslots, frames);
+            if (shapes.isEmpty ()) {
+                demux = parameterised (timeslots, frames);
+                if (verbose) {
+                    System.out.println ("No unrolled shape fits " + timeslots + "x" + frames + "; using "
+                                        + demux.getClass ().getSimpleName ());
+                }
+                Demux earlier = best.putIfAbsent (key, demux);
+                return earlier != null ? earlier : demux;
+            }
+            Demux[] kernels = new Demux [shapes.size ()];
+            String[] names = new String [shapes.size ()];
+            for (int n = 0; n < kernels.length; n++) {
+                kernels [n] = generate (shapes.get (n));
+                names [n] = shapes.get (n).toString ();
+                check (kernels [n], timeslots, frames);
+            }
+            demux = kernels [fastest (kernels, names, timeslots, frames, verbose)];
+            Demux earlier = best.putIfAbsent (key, demux);
+            return earlier != null ? earlier : demux;
+        }
+    }
+
+    /** G.711 expansion tables, indexed by the unsigned code */
+    static final class G711
+    {
+        static final short[] ALAW = new short [256];
+        static final short[] ULAW = new short [256];
+
+        static {
+            for (int i = 0; i < 256; i++) {
+                ALAW [i] = alaw (i);
+                ULAW [i] = ulaw (i);
+            }
+        }
+
+        static short alaw (int code)
+        {
+            int a = code ^ 0x55;
+            int t = (a & 0x0F) << 4;
+            int seg = (a & 0x70) >>> 4;
+            if (seg == 0) {
+                t += 8;
+            } else {
+                t = (t + 0x108) << (seg - 1);
+            }
+            return (short) ((a & 0x80) != 0 ? t : -t);
+        }
+
+        static short ulaw (int code)
+        {
+            int u = ~code;
+            int t = (((u & 0x0F) << 3) + 0x84) << ((u & 0x70) >>> 4);
+            return (short) ((u & 0x80) != 0 ? 0x84 - t : t - 0x84);
+        }
+    }
+
+    static final class Pcm_Dst_First implements PcmDemux
+    {
+        private final short[] table;
+
+        Pcm_Dst_First (short[] table)
+        {
+            this.table = table;
+        }
+
+        public void demux (byte[] src, short[][] dst)
+        {
+            assert src.length % NUM_TIMESLOTS == 0;
+
+            final short[] t = table;
+            int dst_size = src.length / NUM_TIMESLOTS;
+            for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
+                short [] d = dst [dst_num];
+                int src_pos = dst_num;
+                for (int dst_pos = 0; dst_pos < dst_size; ++ dst_pos) {
+                    d[dst_pos] = t[src[src_pos] & 0xFF];
+                    src_pos += NUM_TIMESLOTS;
+                }
+            }
+        }
+    }
+
+    static final class Pcm_Unrolled_1 implements PcmDemux
+    {
+        private final short[] table;
+
+        Pcm_Unrolled_1 (short[] table)
+        {
+            this.table = table;
+        }
+
+        public void demux (byte[] src, short[][] dst)
+        {
+            assert NUM_TIMESLOTS == 32;
+            assert DST_SIZE == 64;
+            assert src.length == NUM_TIMESLOTS * DST_SIZE;
+
+            final short[] t = table;
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                final short[] d = dst[j];
+                d[ 0] = t[src[j+32* 0] & 0xFF]; d[ 1] = t[src[j+32* 1] & 0xFF]; d[ 2] = t[src[j+32* 2] & 0xFF]; d[ 3] = t[src[j+32* 3] & 0xFF];
+                d[ 4] = t[src[j+32* 4] & 0xFF]; d[ 5] = t[src[j+32* 5] & 0xFF]; d[ 6] = t[src[j+32* 6] & 0xFF]; d[ 7] = t[src[j+32* 7] & 0xFF];
+                d[ 8] = t[src[j+32* 8] & 0xFF]; d[ 9] = t[src[j+32* 9] & 0xFF]; d[10] = t[src[j+32*10] & 0xFF]; d[11] = t[src[j+32*11] & 0xFF];
+                d[12] = t[src[j+32*12] & 0xFF]; d[13] = t[src[j+32*13] & 0xFF]; d[14] = t[src[j+32*14] & 0xFF]; d[15] = t[src[j+32*15] & 0xFF];
+                d[16] = t[src[j+32*16] & 0xFF]; d[17] = t[src[j+32*17] & 0xFF]; d[18] = t[src[j+32*18] & 0xFF]; d[19] = t[src[j+32*19] & 0xFF];
+                d[20] = t[src[j+32*20] & 0xFF]; d[21] = t[src[j+32*21] & 0xFF]; d[22] = t[src[j+32*22] & 0xFF]; d[23] = t[src[j+32*23] & 0xFF];
+                d[24] = t[src[j+32*24] & 0xFF]; d[25] = t[src[j+32*25] & 0xFF]; d[26] = t[src[j+32*26] & 0xFF]; d[27] = t[src[j+32*27] & 0xFF];
+                d[28] = t[src[j+32*28] & 0xFF]; d[29] = t[src[j+32*29] & 0xFF]; d[30] = t[src[j+32*30] & 0xFF]; d[31] = t[src[j+32*31] & 0xFF];
+                d[32] = t[src[j+32*32] & 0xFF]; d[33] = t[src[j+32*33] & 0xFF]; d[34] = t[src[j+32*34] & 0xFF]; d[35] = t[src[j+32*35] & 0xFF];
+                d[36] = t[src[j+32*36] & 0xFF]; d[37] = t[src[j+32*37] & 0xFF]; d[38] = t[src[j+32*38] & 0xFF]; d[39] = t[src[j+32*39] & 0xFF];
+                d[40] = t[src[j+32*40] & 0xFF]; d[41] = t[src[j+32*41] & 0xFF]; d[42] = t[src[j+32*42] & 0xFF]; d[43] = t[src[j+32*43] & 0xFF];
+                d[44] = t[src[j+32*44] & 0xFF]; d[45] = t[src[j+32*45] & 0xFF]; d[46] = t[src[j+32*46] & 0xFF]; d[47] = t[src[j+32*47] & 0xFF];
+                d[48] = t[src[j+32*48] & 0xFF]; d[49] = t[src[j+32*49] & 0xFF]; d[50] = t[src[j+32*50] & 0xFF]; d[51] = t[src[j+32*51] & 0xFF];
+                d[52] = t[src[j+32*52] & 0xFF]; d[53] = t[src[j+32*53] & 0xFF]; d[54] = t[src[j+32*54] & 0xFF]; d[55] = t[src[j+32*55] & 0xFF];
+                d[56] = t[src[j+32*56] & 0xFF]; d[57] = t[src[j+32*57] & 0xFF]; d[58] = t[src[j+32*58] & 0xFF]; d[59] = t[src[j+32*59] & 0xFF];
+                d[60] = t[src[j+32*60] & 0xFF]; d[61] = t[src[j+32*61] & 0xFF]; d[62] = t[src[j+32*62] & 0xFF]; d[63] = t[src[j+32*63] & 0xFF];
+            }
+        }
+    }
+
+    static final class Flat_Dst_First implements FlatDemux
+    {
+        public void demux (byte[] src, byte[] dst)
+        {
+            assert src.length % NUM_TIMESLOTS == 0;
+            assert dst.length >= src.length;
+
+            int dst_size = src.length / NUM_TIMESLOTS;
+            int d = 0;
+            for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
+                int src_pos = dst_num;
+                for (int dst_pos = 0; dst_pos < dst_size; ++ dst_pos) {
+                    dst[d++] = src[src_pos];
+                    src_pos += NUM_TIMESLOTS;
+                }
+            }
+        }
+    }
+
+    static final class Flat_Unrolled_1 implements FlatDemux
+    {
+        public void demux (byte[] src, byte[] dst)
+        {
+            assert NUM_TIMESLOTS == 32;
+            assert DST_SIZE == 64;
+            assert src.length == NUM_TIMESLOTS * DST_SIZE;
+
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                final int d = j * DST_SIZE;
+                dst[d+ 0] = src[j+32* 0]; dst[d+ 1] = src[j+32* 1]; dst[d+ 2] = src[j+32* 2]; dst[d+ 3] = src[j+32* 3];
+                dst[d+ 4] = src[j+32* 4]; dst[d+ 5] = src[j+32* 5]; dst[d+ 6] = src[j+32* 6]; dst[d+ 7] = src[j+32* 7];
+                dst[d+ 8] = src[j+32* 8]; dst[d+ 9] = src[j+32* 9]; dst[d+10] = src[j+32*10]; dst[d+11] = src[j+32*11];
+                dst[d+12] = src[j+32*12]; dst[d+13] = src[j+32*13]; dst[d+14] = src[j+32*14]; dst[d+15] = src[j+32*15];
+                dst[d+16] = src[j+32*16]; dst[d+17] = src[j+32*17]; dst[d+18] = src[j+32*18]; dst[d+19] = src[j+32*19];
+                dst[d+20] = src[j+32*20]; dst[d+21] = src[j+32*21]; dst[d+22] = src[j+32*22]; dst[d+23] = src[j+32*23];
+                dst[d+24] = src[j+32*24]; dst[d+25] = src[j+32*25]; dst[d+26] = src[j+32*26]; dst[d+27] = src[j+32*27];
+                dst[d+28] = src[j+32*28]; dst[d+29] = src[j+32*29]; dst[d+30] = src[j+32*30]; dst[d+31] = src[j+32*31];
+                dst[d+32] = src[j+32*32]; dst[d+33] = src[j+32*33]; dst[d+34] = src[j+32*34]; dst[d+35] = src[j+32*35];
+                dst[d+36] = src[j+32*36]; dst[d+37] = src[j+32*37]; dst[d+38] = src[j+32*38]; dst[d+39] = src[j+32*39];
+                dst[d+40] = src[j+32*40]; dst[d+41] = src[j+32*41]; dst[d+42] = src[j+32*42]; dst[d+43] = src[j+32*43];
+                dst[d+44] = src[j+32*44]; dst[d+45] = src[j+32*45]; dst[d+46] = src[j+32*46]; dst[d+47] = src[j+32*47];
+                dst[d+48] = src[j+32*48]; dst[d+49] = src[j+32*49]; dst[d+50] = src[j+32*50]; dst[d+51] = src[j+32*51];
+                dst[d+52] = src[j+32*52]; dst[d+53] = src[j+32*53]; dst[d+54] = src[j+32*54]; dst[d+55] = src[j+32*55];
+                dst[d+56] = src[j+32*56]; dst[d+57] = src[j+32*57]; dst[d+58] = src[j+32*58]; dst[d+59] = src[j+32*59];
+                dst[d+60] = src[j+32*60]; dst[d+61] = src[j+32*61]; dst[d+62] = src[j+32*62]; dst[d+63] = src[j+32*63];
+            }
+        }
+    }
+
+    static final class Flat_Swar_8x8 implements FlatDemux
+    {
+        public void demux (byte[] src, byte[] dst)
+        {
+            assert NUM_TIMESLOTS % 8 == 0;
+            assert src.length % (NUM_TIMESLOTS * 8) == 0;
+
+            int dst_size = src.length / NUM_TIMESLOTS;
+            for (int j = 0; j < NUM_TIMESLOTS; j += 8) {
+                Swar_8x8.transpose (src, j, NUM_TIMESLOTS, dst_size, dst);
+            }
+        }
+    }
+
+    /** One channel of a flat (channel-major) destination; no copy, reads go straight to the shared array */
+    static final class Channel
+    {
+        final byte[] flat;
+        final int offset;
+        final int length;
+
+        Channel (byte[] flat, int timeslot, int frames)
+        {
+            if (timeslot < 0 || (timeslot + 1) * frames > flat.length) {
+                throw new IndexOutOfBoundsException ("Timeslot " + timeslot + " outside " + flat.length + " bytes");
+            }
+            this.flat = flat;
+            this.offset = timeslot * frames;
+            this.length = frames;
+        }
+
+        /** Views of all NUM_TIMESLOTS channels; made once per destination array and reused */
+        static Channel[] all (byte[] flat, int frames)
+        {
+            Channel[] channels = new Channel [NUM_TIMESLOTS];
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                channels [j] = new Channel (flat, j, frames);
+            }
+            return channels;
+        }
+
+        byte get (int i)
+        {
+            return flat [offset + Objects.checkIndex (i, length)];
+        }
+
+        int length ()
+        {
+            return length;
+        }
+
+        void copy_to (byte[] dst, int pos)
+        {
+            System.arraycopy (flat, offset, dst, pos, length);
+        }
+
+        byte[] to_array ()
+        {
+            return Arrays.copyOfRange (flat, offset, offset + length);
+        }
+
+        ByteBuffer buffer ()
+        {
+            return ByteBuffer.wrap (flat, offset, length).slice ();
+        }
+    }
+
+    static final class Buffer_Reference implements BufferDemux
+    {
+        public void demux (ByteBuffer src, ByteBuffer[] dst)
+        {
+            assert src.limit () % NUM_TIMESLOTS == 0;
+
+            int dst_pos = 0;
+            int dst_num = 0;
+            for (int i = 0; i < src.limit (); i++) {
+                dst [dst_num].put (dst_pos, src.get (i));
+                if (++ dst_num == NUM_TIMESLOTS) {
+                    dst_num = 0;
+                    ++ dst_pos;
+                }
+            }
+        }
+    }
+
+    static final class Buffer_Unrolled_1 implements BufferDemux
+    {
+        public void demux (ByteBuffer src, ByteBuffer[] dst)
+        {
+            assert NUM_TIMESLOTS == 32;
+            assert DST_SIZE == 64;
+            assert src.limit () == NUM_TIMESLOTS * DST_SIZE;
+
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                final ByteBuffer d = dst[j];
+                d.put ( 0, src.get (j+32* 0)); d.put ( 1, src.get (j+32* 1)); d.put ( 2, src.get (j+32* 2)); d.put ( 3, src.get (j+32* 3));
+                d.put ( 4, src.get (j+32* 4)); d.put ( 5, src.get (j+32* 5)); d.put ( 6, src.get (j+32* 6)); d.put ( 7, src.get (j+32* 7));
+                d.put ( 8, src.get (j+32* 8)); d.put ( 9, src.get (j+32* 9)); d.put (10, src.get (j+32*10)); d.put (11, src.get (j+32*11));
+                d.put (12, src.get (j+32*12)); d.put (13, src.get (j+32*13)); d.put (14, src.get (j+32*14)); d.put (15, src.get (j+32*15));
+                d.put (16, src.get (j+32*16)); d.put (17, src.get (j+32*17)); d.put (18, src.get (j+32*18)); d.put (19, src.get (j+32*19));
+                d.put (20, src.get (j+32*20)); d.put (21, src.get (j+32*21)); d.put (22, src.get (j+32*22)); d.put (23, src.get (j+32*23));
+                d.put (24, src.get (j+32*24)); d.put (25, src.get (j+32*25)); d.put (26, src.get (j+32*26)); d.put (27, src.get (j+32*27));
+                d.put (28, src.get (j+32*28)); d.put (29, src.get (j+32*29)); d.put (30, src.get (j+32*30)); d.put (31, src.get (j+32*31));
+                d.put (32, src.get (j+32*32)); d.put (33, src.get (j+32*33)); d.put (34, src.get (j+32*34)); d.put (35, src.get (j+32*35));
+                d.put (36, src.get (j+32*36)); d.put (37, src.get (j+32*37)); d.put (38, src.get (j+32*38)); d.put (39, src.get (j+32*39));
+                d.put (40, src.get (j+32*40)); d.put (41, src.get (j+32*41)); d.put (42, src.get (j+32*42)); d.put (43, src.get (j+32*43));
+                d.put (44, src.get (j+32*44)); d.put (45, src.get (j+32*45)); d.put (46, src.get (j+32*46)); d.put (47, src.get (j+32*47));
+                d.put (48, src.get (j+32*48)); d.put (49, src.get (j+32*49)); d.put (50, src.get (j+32*50)); d.put (51, src.get (j+32*51));
+                d.put (52, src.get (j+32*52)); d.put (53, src.get (j+32*53)); d.put (54, src.get (j+32*54)); d.put (55, src.get (j+32*55));
+                d.put (56, src.get (j+32*56)); d.put (57, src.get (j+32*57)); d.put (58, src.get (j+32*58)); d.put (59, src.get (j+32*59));
+                d.put (60, src.get (j+32*60)); d.put (61, src.get (j+32*61)); d.put (62, src.get (j+32*62)); d.put (63, src.get (j+32*63));
+            }
+        }
+    }
+
+    /** Swar_8x8 on ByteBuffer views, which may be direct memory on both sides: the same loads, Swar_8x8.network ()
+      * and stores, through the ByteBuffer view VarHandle instead of the byte array one.
+      */
+    static final class Buffer_Swar_8x8 implements BufferDemux
+    {
+        private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle (long[].class, ByteOrder.LITTLE_ENDIAN);
+
+        public void demux (ByteBuffer src, ByteBuffer[] dst)
+        {
+            assert NUM_TIMESLOTS % 8 == 0;
+            assert src.limit () % (NUM_TIMESLOTS * 8) == 0;
+
+            int dst_size = src.limit () / NUM_TIMESLOTS;
+            // Timeslot groups outside, so that the eight rows of a group are loaded once per call
+            for (int j = 0; j < NUM_TIMESLOTS; j += 8) {
+                transpose (src, j, NUM_TIMESLOTS, dst_size, dst);
+            }
+        }
+
+        /** Swar_8x8.transpose () from 8 columns of src into dst [j] .. dst [j + 7], dst_size bytes each */
+        static void transpose (ByteBuffer src, int j, int stride, int dst_size, ByteBuffer[] dst)
+        {
+            final ByteBuffer d0 = dst[j+0], d1 = dst[j+1], d2 = dst[j+2], d3 = dst[j+3];
+            final ByteBuffer d4 = dst[j+4], d5 = dst[j+5], d6 = dst[j+6], d7 = dst[j+7];
+            for (int pos = 0; pos < dst_size; pos += 8) {
+                int p = pos * stride + j;
+                long[] x = new long [8];
+                x[0] = (long) LONGS.get (src, p + stride * 0);
+                x[1] = (long) LONGS.get (src, p + stride * 1);
+                x[2] = (long) LONGS.get (src, p + stride * 2);
+                x[3] = (long) LONGS.get (src, p + stride * 3);
+                x[4] = (long) LONGS.get (src, p + stride * 4);
+                x[5] = (long) LONGS.get (src, p + stride * 5);
+                x[6] = (long) LONGS.get (src, p + stride * 6);
+                x[7] = (long) LONGS.get (src, p + stride * 7);
+                Swar_8x8.network (x);
+                LONGS.set (d0, pos, x[0]);
+                LONGS.set (d1, pos, x[1]);
+                LONGS.set (d2, pos, x[2]);
+                LONGS.set (d3, pos, x[3]);
+                LONGS.set (d4, pos, x[4]);
+                LONGS.set (d5, pos, x[5]);
+                LONGS.set (d6, pos, x[6]);
+                LONGS.set (d7, pos, x[7]);
+            }
+        }
+    }
+
+    /** Accepts the stream in chunks of any size. Whole blocks go to the kernel; complete blocks of DST_SIZE
+      * frames are passed to the sink as soon as they are demultiplexed, the rest waits for more data or flush ().
+      * An OffsetDemux kernel reads whole blocks where they are in the caller's chunk, so only the ragged edges
+      * of a chunk are copied; other kernels get every block through the internal copy.
+      */
+    static final class StreamingDemux
+    {
+        interface Sink
+        {
+            /** Called with the first frames bytes of every dst row filled; dst is reused after the call returns */
+            public void block (byte[][] dst, int frames);
+        }
+
+        interface Factory
+        {
+            public StreamingDemux create (Sink sink);
+        }
+
+        private final Demux kernel;
+        private final OffsetDemux offset_kernel;                                 // kernel if it reads in place, else null
+        private final Sink sink;
+        private final byte[] block = new byte [SRC_SIZE];
+        private final byte[][] dst = allocate_dst ();
+        private int fill = 0;
+
+        StreamingDemux (Demux kernel, Sink sink)
+        {
+            this.kernel = kernel;
+            this.offset_kernel = kernel instanceof OffsetDemux ? (OffsetDemux) kernel : null;
+            this.sink = sink;
+        }
+
+        /** The timeslot the next byte of the stream belongs to */
+        int phase ()
+        {
+            return fill % NUM_TIMESLOTS;
+        }
+
+        void write (byte[] buf, int off, int len)
+        {
+            if (fill > 0) {
+                int n = Math.min (len, SRC_SIZE - fill);
+                System.arraycopy (buf, off, block, fill, n);
+                fill += n;
+                off += n;
+                len -= n;
+                if (fill < SRC_SIZE) {
+                    return;
+                }
+                kernel.demux (block, dst);
+                sink.block (dst, DST_SIZE);
+                fill = 0;
+            }
+            if (off == 0 && len == SRC_SIZE && buf.length == SRC_SIZE) {
+                kernel.demux (buf, dst);
+                sink.block (dst, DST_SIZE);
+                return;
+            }
+            while (len >= SRC_SIZE) {
+                if (offset_kernel != null) {
+                    offset_kernel.demux (buf, off, SRC_SIZE, dst);
+                } else {
+                    System.arraycopy (buf, off, block, 0, SRC_SIZE);
+                    kernel.demux (block, dst);
+                }
+                sink.block (dst, DST_SIZE);
+                off += SRC_SIZE;
+                len -= SRC_SIZE;
+            }
+            System.arraycopy (buf, off, block, 0, len);
+            fill = len;
+        }
+
+        /** Drops the pending bytes, so that the next byte written is timeslot 0 */
+        void reset ()
+        {
+            fill = 0;
+        }
+
+        /** Passes on the complete frames of the partial block; an incomplete frame stays pending */
+        void flush ()
+        {
+            int frames = fill / NUM_TIMESLOTS;
+            if (frames == 0) {
+                return;
+            }
+            for (int dst_num = 0; dst_num < NUM_TIMESLOTS; ++ dst_num) {
+                byte[] d = dst [dst_num];
+                int src_pos = dst_num;
+                for (int dst_pos = 0; dst_pos < frames; ++ dst_pos) {
+                    d[dst_pos] = block[src_pos];
+                    src_pos += NUM_TIMESLOTS;
+                }
+            }
+            sink.block (dst, frames);
+            fill -= frames * NUM_TIMESLOTS;
+            System.arraycopy (block, frames * NUM_TIMESLOTS, block, 0, fill);
+        }
+    }
+
+    /** Finds the G.704 frame alignment of a byte-aligned stream and passes aligned data on to a StreamingDemux.
+      * Alignment is accepted at the first offset with FAS in frame n, NFAS bit 2 in frame n+1 and FAS in frame n+2;
+      * it is lost after three consecutive incorrect FAS (G.706, 4.1.1 and 4.1.2).
+      */
+    static final class FrameAligner
+    {
+        static final int FAS = 0x1B;
+        static final int LOSS_THRESHOLD = 3;
+
+        private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle (long[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final long LOW7  = 0x7F7F7F7F7F7F7F7FL;
+        private static final long HIGH  = 0x8080808080808080L;
+        private static final long FAS8  = 0x1B1B1B1B1B1B1B1BL;
+        private static final long NFAS8 = 0x4040404040404040L;
+
+        private final StreamingDemux out;
+        private final byte[] window = new byte [SRC_SIZE];
+        private int fill = 0;
+        private boolean in_frame = false;
+        private int phase;          // position within the FAS/NFAS double frame, valid in frame
+        private int errors;
+        private long losses = 0;
+
+        FrameAligner (StreamingDemux out)
+        {
+            this.out = out;
+        }
+
+        boolean in_frame ()
+        {
+            return in_frame;
+        }
+
+        long losses ()
+        {
+            return losses;
+        }
+
+        /** Forgets the bytes collected while hunting */
+        void restart ()
+        {
+            in_frame = false;
+            fill = 0;
+        }
+
+        /** High bit of each byte set where the byte carries FAS in bits 2..8 */
+        private static long fas (long w)
+        {
+            long y = (w & LOW7) ^ FAS8;
+            return ~((y + LOW7) | y) & HIGH;
+        }
+
+        /** Returns the first offset in [from, to) that starts an FAS/NFAS/FAS sequence, or -1 */
+        static int find (byte[] buf, int from, int to)
+        {
+            int last = to - 2 * NUM_TIMESLOTS;
+            int pos = from;
+            for (; pos + 8 <= last; pos += 8) {
+                long m = fas ((long) LONGS.get (buf, pos))
+                       & ((long) LONGS.get (buf, pos + NUM_TIMESLOTS) & NFAS8) << 1
+                       & fas ((long) LONGS.get (buf, pos + 2 * NUM_TIMESLOTS));
+                if (m != 0) {
+                    return pos + (Long.numberOfTrailingZeros (m) >>> 3);
+                }
+            }
+            for (; pos < last; pos++) {
+                if ((buf [pos] & 0x7F) == FAS && (buf [pos + NUM_TIMESLOTS] & 0x40) != 0 && (buf [pos + 2 * NUM_TIMESLOTS] & 0x7F) == FAS) {
+                    return pos;
+                }
+            }
+            return -1;
+        }
+
+        void write (byte[] buf, int off, int len)
+        {
+            while (len > 0) {
+                int n = in_frame ? track (buf, off, len) : hunt (buf, off, len);
+                off += n;
+                len -= n;
+            }
+        }
+
+        /** Monitors FAS while passing data on; returns the number of bytes consumed */
+        private int track (byte[] buf, int off, int len)
+        {
+            for (int i = (2 * NUM_TIMESLOTS - phase) % (2 * NUM_TIMESLOTS); i < len; i += 2 * NUM_TIMESLOTS) {
+                if ((buf [off + i] & 0x7F) == FAS) {
+                    errors = 0;
+                } else if (++ errors == LOSS_THRESHOLD) {
+                    out.write (buf, off, i);
+                    out.flush ();
+                    out.reset ();
+                    ++ losses;
+                    in_frame = false;
+                    return i + 1;
+                }
+            }
+            out.write (buf, off, len);
+            phase = (phase + len) % (2 * NUM_TIMESLOTS);
+            return len;
+        }
+
+        /** Searches the window for alignment; returns the number of bytes consumed */
+        private int hunt (byte[] buf, int off, int len)
+        {
+            int n = Math.min (len, window.length - fill);
+            System.arraycopy (buf, off, window, fill, n);
+            int start = Math.max (0, fill - 2 * NUM_TIMESLOTS);
+            fill += n;
+            int pos;
+            while ((pos = find (window, start, fill)) >= 0) {
+                in_frame = true;
+                errors = 0;
+                phase = 0;
+                int consumed = track (window, pos, fill - pos);
+                if (in_frame) {
+                    fill = 0;
+                    return n;
+                }
+                start = pos + consumed;
+            }
+            int keep = Math.max (start, fill - 2 * NUM_TIMESLOTS);
+            System.arraycopy (window, keep, window, 0, fill - keep);
+            fill -= keep;
+            return n;
+        }
+    }
+
+    /** Front end for raw bitstreams (MSB first) whose octet boundaries are unknown. Hunts for the bit shift
+      * at which FrameAligner.find () succeeds, then realigns the stream with that shift and passes it on.
+      * When the FrameAligner loses frame, the bit shift is searched for again.
+      */
+    static final class BitAligner
+    {
+        private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle (long[].class, ByteOrder.BIG_ENDIAN);
+        static final int CONFIRM = 4;
+        private static final int KEEP = 2 * NUM_TIMESLOTS * (1 + CONFIRM) + 1;
+
+        private final FrameAligner out;
+        private final byte[] raw = new byte [SRC_SIZE + 1];
+        private final byte[][] aligned = new byte [8][SRC_SIZE];                // raw realigned with each shift
+        private int fill = 0;
+        private int shift = -1;
+        private int realigned = 0;                                               // hunting: bytes of aligned [s] valid
+        private int searched = 0;                                                // hunting: next candidate position
+
+        BitAligner (FrameAligner out)
+        {
+            this.out = out;
+        }
+
+        boolean in_frame ()
+        {
+            return shift >= 0 && out.in_frame ();
+        }
+
+        /** Number of bits skipped at the start of every octet, -1 while hunting */
+        int shift ()
+        {
+            return shift;
+        }
+
+        /** out[i] = bits s .. s+7 of in[from+i] and in[from+i+1], for i < n; reads n + 1 bytes of in */
+        static void realign (byte[] in, int from, int n, int s, byte[] out)
+        {
+            realign (in, from, n, s, out, 0);
+        }
+
+        /** As above, writing from out[to] on */
+        static void realign (byte[] in, int from, int n, int s, byte[] out, int to)
+        {
+            int i = 0;
+            for (; i + 8 < n + 1; i += 8) {
+                long w = (long) LONGS.get (in, from + i);
+                LONGS.set (out, to + i, w << s | (in [from + i + 8] & 0xFF) >>> (8 - s));
+            }
+            for (; i < n; i++) {
+                out [to + i] = (byte) ((in [from + i] & 0xFF) << s | (in [from + i + 1] & 0xFF) >>> (8 - s));
+            }
+        }
+
+        void write (byte[] buf, int off, int len)
+        {
+            while (len > 0) {
+                int n = Math.min (len, raw.length - fill);
+                System.arraycopy (buf, off, raw, fill, n);
+                fill += n;
+                off += n;
+                len -= n;
+                if (shift >= 0) {
+                    track ();
+                } else {
+                    hunt ();
+                }
+            }
+        }
+
+        /** Realigns everything but the last byte, which is kept for the next realignment */
+        private void track ()
+        {
+            int n = fill - 1;
+            byte[] a = aligned [shift];
+            realign (raw, 0, n, shift, a);
+            raw [0] = raw [n];
+            fill = 1;
+            forward (a, 0, n);
+        }
+
+        /** Any loss of frame may be a bit slip, so the FrameAligner is not left to re-hunt with the old shift */
+        private void forward (byte[] a, int from, int n)
+        {
+            long losses = out.losses ();
+            out.write (a, from, n);
+            if (out.losses () != losses) {
+                out.restart ();
+                shift = -1;
+                realigned = 0;
+                searched = 0;
+            }
+        }
+
+        /** FAS must also be present in CONFIRM further even frames; bit shifts give many more false candidates */
+        private static boolean confirmed (byte[] buf, int pos)
+        {
+            for (int k = 2; k < 2 + CONFIRM; k++) {
+                if ((buf [pos + 2 * NUM_TIMESLOTS * k] & 0x7F) != FrameAligner.FAS) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Realigns and searches only what arrived since the last call, so the cost follows the new data */
+        private void hunt ()
+        {
+            int n = fill - 1;
+            int last = n - 2 * NUM_TIMESLOTS * CONFIRM;
+            for (int s = 0; s < 8; s++) {
+                realign (raw, realigned, n - realigned, s, aligned [s], realigned);
+            }
+            realigned = n;
+            for (int s = 0; s < 8; s++) {
+                for (int pos = searched; (pos = FrameAligner.find (aligned [s], pos, last)) >= 0; pos++) {
+                    if (confirmed (aligned [s], pos)) {
+                        shift = s;
+                        out.restart ();
+                        raw [0] = raw [n];
+                        fill = 1;
+                        realigned = 0;
+                        searched = 0;
+                        forward (aligned [s], pos, n - pos);
+                        return;
+                    }
+                }
+            }
+            searched = Math.max (searched, last - 2 * NUM_TIMESLOTS);
+            if (fill == raw.length) {
+                int drop = fill - KEEP;
+                System.arraycopy (raw, drop, raw, 0, KEEP);
+                for (byte[] a : aligned) {
+                    System.arraycopy (a, drop, a, 0, realigned - drop);
+                }
+                fill = KEEP;
+                realigned -= drop;
+                searched = Math.max (0, searched - drop);
+            }
+        }
+    }
+
+    /** Channel-associated signalling in TS16 (G.704, 5.1.3). Frame 0 of each 16-frame multiframe carries MFAS
+      * (0000 in bits 1-4, the remote alarm in bit 6); frame n = 1..15 carries the ABCD bits of channel n in bits
+      * 1-4 and of channel n + 15 in bits 5-8. Channels 1..15 are timeslots 1..15, channels 16..30 timeslots 17..31.
+      * Alignment is gained at the first MFAS preceded by a non-zero TS16 and lost after two consecutive MFAS
+      * errors (G.732, 5.2). Only changes reach the listener. Each time alignment is gained, the first time and
+      * after every loss, the first value of each channel is reported as a change from -1. An aligned multiframe
+      * identical to the previous one costs two 64-bit compares, or one per byte when reading straight from src.
+      * Nothing is allocated after construction.
+      */
+    static final class CasExtractor
+    {
+        static final int MF_FRAMES = 16;
+        static final int CHANNELS = 30;
+        static final int LOSS_THRESHOLD = 2;
+
+        interface Listener
+        {
+            public void change (int channel, int old_abcd, int new_abcd);
+        }
+
+        private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle (long[].class, ByteOrder.LITTLE_ENDIAN);
+
+        private final Listener listener;
+        private final byte[] abcd = new byte [CHANNELS + 1];                     // by channel number, -1 unknown
+        private final byte[] last = new byte [MF_FRAMES];                        // the previous multiframe
+        private boolean last_full = false;
+        private int phase = -1;                                                  // frame of the next byte, -1 hunting
+        private int prev = 0;
+        private int errors = 0;
+        private long losses = 0;
+        private boolean remote_alarm = false;
+
+        CasExtractor (Listener listener)
+        {
+            this.listener = listener;
+            Arrays.fill (abcd, (byte) -1);
+        }
+
+        boolean in_multiframe ()
+        {
+            return phase >= 0;
+        }
+
+        long losses ()
+        {
+            return losses;
+        }
+
+        /** Y bit of the last MFAS: the far end has lost multiframe alignment */
+        boolean remote_alarm ()
+        {
+            return remote_alarm;
+        }
+
+        /** Current ABCD bits of a channel (1..30), -1 out of multiframe alignment and before the first aligned
+          * multiframe after it */
+        int abcd (int channel)
+        {
+            return abcd [channel];
+        }
+
+        /** TS16 bytes of consecutive frames, such as a demultiplexed dst [16] */
+        void write (byte[] ts16, int off, int len)
+        {
+            write (ts16, off, len, 1);
+        }
+
+        /** TS16 of whole frames straight from a multiplexed block: frames * NUM_TIMESLOTS bytes from off */
+        void write_frames (byte[] src, int off, int frames)
+        {
+            write (src, off + 16, frames, NUM_TIMESLOTS);
+        }
+
+        private void write (byte[] buf, int pos, int n, int stride)
+        {
+            for (int end = pos + n * stride; pos < end; ) {
+                if (phase == 0 && last_full && errors == 0 && end - pos >= MF_FRAMES * stride
+                    && unchanged (buf, pos, stride)) {
+                    pos += MF_FRAMES * stride;
+                    continue;
+                }
+                next (buf [pos]);
+                pos += stride;
+            }
+        }
+
+        private boolean unchanged (byte[] buf, int pos, int stride)
+        {
+            if (stride == 1) {
+                return (long) LONGS.get (buf, pos) == (long) LONGS.get (last, 0)
+                    && (long) LONGS.get (buf, pos + 8) == (long) LONGS.get (last, 8);
+            }
+            for (int i = 0; i < MF_FRAMES; i++) {
+                if (buf [pos + i * stride] != last [i]) return false;
+            }
+            return true;
+        }
+
+        private void next (byte b)
+        {
+            int v = b & 0xFF;
+            if (phase < 0) {
+                if ((v & 0xF0) == 0 && prev != 0) {
+                    mfas (v);
+                    errors = 0;
+                    phase = 1;
+                }
+            } else if (phase == 0) {
+                if ((v & 0xF0) != 0) {
+                    last_full = false;
+                    if (++ errors >= LOSS_THRESHOLD) {
+                        ++ losses;
+                        phase = -1;
+                        prev = v;
+                        Arrays.fill (abcd, (byte) -1);                           // unknown until realigned
+                        return;
+                    }
+                } else {
+                    errors = 0;
+                    mfas (v);
+                }
+                phase = 1;
+            } else {
+                last [phase] = b;
+                update (phase, v >>> 4);
+                update (phase + 15, v & 0x0F);
+                if (phase == MF_FRAMES - 1) {
+                    last_full = errors == 0;
+                    phase = 0;
+                } else {
+                    ++ phase;
+                }
+            }
+            prev = v;
+        }
+
+        private void mfas (int v)
+        {
+            last [0] = (byte) v;
+            remote_alarm = (v & 0x04) != 0;
+        }
+
+        private void update (int channel, int value)
+        {
+            int old = abcd [channel];
+            if (old != value) {
+                abcd [channel] = (byte) value;
+                listener.change (channel, old, value);
+            }
+        }
+    }
+
+    /** HDLC receiver for one timeslot row, such as dst [j] of a demultiplexed block, fed a few bytes at a time.
+      * Bits are taken least significant first, as HDLC sends them. Zero deletion, flags and aborts are resolved a
+      * byte at a time: STEP maps (pending ones, bits left in the byte, the bits) to the data bits it yields, the
+      * bits consumed and the event (flag or abort) that stopped it, so a byte without a flag is one lookup.
+      * Ones are held back in the state until a zero shows they were data; the zero that starts a flag therefore
+      * ends up as one extra data bit, which is how an octet-aligned frame is recognised at the closing flag.
+      * A frame is collected in a Frame taken from a Frame_Pool, checked with FCS-16 or FCS-32 and handed to the
+      * listener, which gives it back to the pool when done. Without a free Frame the frame is dropped.
+      */
+    static final class HdlcDeframer
+    {
+        static final int FCS16_GOOD = 0xF0B8;
+        static final int FCS32_GOOD = 0xDEBB20E3;
+
+        static final int[] FCS16 = new int [256];
+        static final int[] FCS32 = new int [256];
+
+        private static final int NONE = 0, FLAG = 1, ABORT = 2;
+        private static final int ABORTED = 7;                                    // ones state after seven ones
+
+        /** Index: ones (0..7) * 2048 + (bits - 1) * 256 + value; entry: data 0..12, count 13..16, ones 17..19,
+          * consumed 20..23, event 24..25 */
+        private static final int[] STEP = new int [8 * 8 * 256];
+
+        static {
+            for (int i = 0; i < 256; i++) {
+                int c16 = i, c32 = i;
+                for (int k = 0; k < 8; k++) {
+                    c16 = (c16 & 1) != 0 ? c16 >>> 1 ^ 0x8408 : c16 >>> 1;
+                    c32 = (c32 & 1) != 0 ? c32 >>> 1 ^ 0xEDB88320 : c32 >>> 1;
+                }
+                FCS16 [i] = c16;
+                FCS32 [i] = c32;
+            }
+            for (int ones0 = 0; ones0 < 8; ones0++) {
+                for (int bits = 1; bits <= 8; bits++) {
+                    for (int value = 0; value < 1 << bits; value++) {
+                        int ones = ones0, data = 0, count = 0, event = NONE, i = 0;
+                        while (i < bits && event == NONE) {
+                            int b = value >>> i++ & 1;
+                            if (b == 1) {
+                                if (ones == 6) event = ABORT;
+                                ones = Math.min (ones + 1, ABORTED);
+                            } else {
+                                if (ones < 5) {
+                                    data |= ((1 << ones) - 1) << count;          // the held ones, then the zero
+                                    count += ones + 1;
+                                } else if (ones == 5) {
+                                    data |= 0x1F << count;                       // stuffed zero deleted
+                                    count += 5;
+                                } else if (ones == 6) {
+                                    event = FLAG;
+                                }
+                                ones = 0;
+                            }
+                        }
+                        STEP [ones0 * 2048 + (bits - 1) * 256 + value] =
+                            data | count << 13 | ones << 17 | i << 20 | event << 24;
+                    }
+                }
+            }
+        }
+
+        static int fcs16 (int fcs, byte[] buf, int off, int len)
+        {
+            for (int i = off; i < off + len; i++) fcs = fcs >>> 8 ^ FCS16 [(fcs ^ buf [i]) & 0xFF];
+            return fcs;
+        }
+
+        static int fcs32 (int fcs, byte[] buf, int off, int len)
+        {
+            for (int i = off; i < off + len; i++) fcs = fcs >>> 8 ^ FCS32 [(fcs ^ buf [i]) & 0xFF];
+            return fcs;
+        }
+
+        /** A received frame, FCS excluded (data must also have room for the FCS); belongs to the listener until
+          * released to its pool */
+        static final class Frame
+        {
+            final byte[] data;
+            int length;
+
+            Frame (int size)
+            {
+                data = new byte [size];
+            }
+        }
+
+        /** Fixed set of Frames; single-threaded like the deframers that share it */
+        static final class Frame_Pool
+        {
+            private final Frame[] free;
+            private int count;
+
+            Frame_Pool (int frames, int size)
+            {
+                free = new Frame [frames];
+                for (int i = 0; i < frames; i++) free [i] = new Frame (size);
+                count = frames;
+            }
+
+            /** null when all frames are in use */
+            Frame acquire ()
+            {
+                return count == 0 ? null : free [-- count];
+            }
+
+            void release (Frame frame)
+            {
+                free [count ++] = frame;
+            }
+
+            int available ()
+            {
+                return count;
+            }
+        }
+
+        interface Listener
+        {
+            public void frame (Frame frame);
+        }
+
+        private final boolean fcs32;
+        private final int[] table;                                               // FCS16 or FCS32
+        private final Frame_Pool pool;
+        private final Listener listener;
+
+        private int ones = ABORTED;                                              // hunting: wait for a flag
+        private boolean hunting = true;
+        private int acc;
+        private int acc_bits;
+        private Frame frame;
+        private int length;
+        private int fcs;
+        private boolean discard;
+
+        private long frames, fcs_errors, aborts, overruns, bad_length;
+
+        HdlcDeframer (int fcs_bits, Frame_Pool pool, Listener listener)
+        {
+            if (fcs_bits != 16 && fcs_bits != 32) {
+                throw new IllegalArgumentException ("FCS must be 16 or 32 bits, not " + fcs_bits);
+            }
+            this.fcs32 = fcs_bits == 32;
+            this.table = fcs32 ? FCS32 : FCS16;
+            this.pool = pool;
+            this.listener = listener;
+        }
+
+        long frames ()
+        {
+            return frames;
+        }
+
+        long fcs_errors ()
+        {
+            return fcs_errors;
+        }
+
+        long aborts ()
+        {
+            return aborts;
+        }
+
+        /** Frames dropped for lack of a free Frame or for exceeding its size */
+        long overruns ()
+        {
+            return overruns;
+        }
+
+        /** Frames too short for their FCS or not a whole number of octets */
+        long bad_length ()
+        {
+            return bad_length;
+        }
+
+        void write (byte[] buf, int off, int len)
+        {
+            for (int i = off; i < off + len; i++) {
+                int v = buf [i] & 0xFF;
+                int bits = 8;
+                while (true) {
+                    int e = STEP [ones << 11 | (bits - 1) << 8 | v];
+                    ones = e >>> 17 & 7;
+                    int count = e >>> 13 & 0xF;
+                    if (count != 0 && ! hunting) {
+                        acc |= (e & 0x1FFF) << acc_bits;
+                        acc_bits += count;
+                        while (acc_bits >= 8) {
+                            octet (acc & 0xFF);
+                            acc >>>= 8;
+                            acc_bits -= 8;
+                        }
+                    }
+                    int event = e >>> 24;
+                    if (event == NONE) break;
+                    if (event == FLAG) {
+                        flag ();
+                    } else {
+                        abort ();
+                    }
+                    int consumed = e >>> 20 & 0xF;
+                    bits -= consumed;
+                    if (bits == 0) break;
+                    v = (v >>> consumed) & ((1 << bits) - 1);
+                }
+            }
+        }
+
+        private void octet (int b)
+        {
+            if (discard) return;
+            if (frame == null) {
+                frame = pool.acquire ();
+                if (frame == null) {
+                    ++ overruns;
+                    discard = true;
+                    return;
+                }
+            }
+            if (length == frame.data.length) {
+                ++ overruns;
+                discard = true;
+                return;
+            }
+            frame.data [length++] = (byte) b;
+            fcs = fcs >>> 8 ^ table [(fcs ^ b) & 0xFF];
+        }
+
+        private void flag ()
+        {
+            if (! hunting && ! discard && (length > 0 || acc_bits > 1)) {
+                int fcs_len = fcs32 ? 4 : 2;
+                if (acc_bits != 1 || length <= fcs_len) {
+                    ++ bad_length;
+                } else if (fcs != (fcs32 ? FCS32_GOOD : FCS16_GOOD)) {
+                    ++ fcs_errors;
+                } else {
+                    frame.length = length - fcs_len;
+                    Frame f = frame;
+                    frame = null;
+                    ++ frames;
+                    listener.frame (f);
+                }
+            }
+            hunting = false;
+            start ();
+        }
+
+        private void abort ()
+        {
+            if (! hunting) ++ aborts;
+            hunting = true;
+            start ();
+        }
+
+        private void start ()
+        {
+            acc = 0;
+            acc_bits = 0;
+            length = 0;
+            discard = false;
+            fcs = fcs32 ? 0xFFFFFFFF : 0xFFFF;
+        }
+    }
+
+    /** Single-producer/single-consumer byte ring for one channel. Head (written by the producer) and tail (written
+      * by the consumer) sit in one long array, a cache line apart and away from the array header and the next
+      * object, so the two threads never write the same line. The capacity is a power of two and a multiple of
+      * DST_SIZE, so a block of a channel is always one contiguous run of the buffer.
+      */
+    static final class Channel_Ring
+    {
+        private static final VarHandle INDEX = MethodHandles.arrayElementVarHandle (long[].class);
+        private static final int HEAD = 8;
+        private static final int TAIL = 16;
+
+        final byte[] buffer;
+        final int mask;
+        private final long[] index = new long [TAIL + 8];
+
+        Channel_Ring (int capacity)
+        {
+            if (Integer.bitCount (capacity) != 1 || capacity < DST_SIZE) {
+                throw new IllegalArgumentException ("Capacity must be a power of two of at least " + DST_SIZE);
+            }
+            buffer = new byte [capacity];
+            mask = capacity - 1;
+        }
+
+        long head ()
+        {
+            return (long) INDEX.getAcquire (index, HEAD);
+        }
+
+        long tail ()
+        {
+            return (long) INDEX.getAcquire (index, TAIL);
+        }
+
+        /** Producer: makes everything written below head visible */
+        void publish (long head)
+        {
+            INDEX.setRelease (index, HEAD, head);
+        }
+
+        /** Consumer: copies up to len bytes out and frees their space; returns the number copied */
+        int read (byte[] out, int off, int len)
+        {
+            long tail = (long) INDEX.getOpaque (index, TAIL);
+            int n = (int) Math.min (len, head () - tail);
+            int pos = (int) tail & mask;
+            int first = Math.min (n, buffer.length - pos);
+            System.arraycopy (buffer, pos, out, off, first);
+            System.arraycopy (buffer, 0, out, off + first, n - first);
+            INDEX.setRelease (index, TAIL, tail + n);
+            return n;
+        }
+    }
+
+    /** Swar_8x8 whose destination rows are Channel_Rings, for consumers on other threads. The demux thread never
+      * blocks or allocates: a channel whose ring has no room for the block loses the block (counted in overruns)
+      * and the others go on. Heads are published once every batch blocks, or by flush ().
+      */
+    static final class RingDemux
+    {
+        private final Channel_Ring[] rings = new Channel_Ring [NUM_TIMESLOTS];
+        private final int batch;
+        private int pending = 0;
+        // Producer-side state, never touched by consumers
+        private final long[] head = new long [NUM_TIMESLOTS];
+        private final long[] tail_cache = new long [NUM_TIMESLOTS];
+        private final byte[][] target = new byte [NUM_TIMESLOTS][];
+        private final int[] offset = new int [NUM_TIMESLOTS];
+        private final byte[] scratch = new byte [DST_SIZE];
+        private final long[] overruns = new long [NUM_TIMESLOTS];
+
+        RingDemux (int capacity, int batch)
+        {
+            for (int j = 0; j < NUM_TIMESLOTS; j++) rings [j] = new Channel_Ring (capacity);
+            this.batch = batch;
+        }
+
+        Channel_Ring ring (int timeslot)
+        {
+            return rings [timeslot];
+        }
+
+        long overruns (int timeslot)
+        {
+            return overruns [timeslot];
+        }
+
+        /** Demultiplexes one SRC_SIZE block into the rings */
+        void demux (byte[] src)
+        {
+            assert NUM_TIMESLOTS == 32;
+            assert src.length == SRC_SIZE;
+
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                Channel_Ring ring = rings [j];
+                if (head [j] + DST_SIZE - tail_cache [j] > ring.buffer.length) {
+                    tail_cache [j] = ring.tail ();
+                }
+                if (head [j] + DST_SIZE - tail_cache [j] > ring.buffer.length) {
+                    ++ overruns [j];
+                    target [j] = scratch;
+                    offset [j] = 0;
+                } else {
+                    target [j] = ring.buffer;
+                    offset [j] = (int) head [j] & ring.mask;
+                    head [j] += DST_SIZE;
+                }
+            }
+            for (int j = 0; j < NUM_TIMESLOTS; j += 8) {
+                Swar_8x8.transpose (src, j, NUM_TIMESLOTS, DST_SIZE, target, offset);
+            }
+            if (++ pending >= batch) {
+                flush ();
+            }
+        }
+
+        /** Publishes the blocks written since the last publication */
+        void flush ()
+        {
+            for (int j = 0; j < NUM_TIMESLOTS; j++) rings [j].publish (head [j]);
+            pending = 0;
+        }
+    }
+
+    /** Demultiplexes a group of links, such as the 63 E1 of a channelized STM-1, on a fixed pool of threads.
+      * The links are split into contiguous ranges, one per thread; every link has its own kernel (kernels
+      * may keep state, like Crc4_Swar_8x8) and its own destination.
+      */
+    static final class LinkGroupDemuxer implements AutoCloseable
+    {
+        private static final class Link
+        {
+            final Demux demux;
+            final byte[][] dst = allocate_dst ();
+            long frames;
+            long p1, p2, p3, p4, p5, p6, p7;                                     // keeps counters of neighbouring links
+                                                                                 // off each other's cache line
+            Link (Demux demux)
+            {
+                this.demux = demux;
+            }
+        }
+
+        private final Link[] links;
+        private final ExecutorService pool;
+        private final List<Callable<Void>> ranges = new ArrayList<Callable<Void>> ();
+        private byte[][] src;
+        private long start;
+
+        LinkGroupDemuxer (int links, int threads, Supplier<Demux> kernel)
+        {
+            if (links <= 0 || threads <= 0) {
+                throw new IllegalArgumentException ("Links and threads must be positive");
+            }
+            this.links = new Link [links];
+            for (int i = 0; i < links; i++) {
+                this.links [i] = new Link (kernel.get ());
+            }
+            threads = Math.min (threads, links);
+            pool = Executors.newFixedThreadPool (threads, r -> {
+                Thread t = new Thread (r, "E1-link-group");
+                t.setDaemon (true);
+                return t;
+            });
+            for (int t = 0; t < threads; t++) {
+                int from = links * t / threads;
+                int to = links * (t + 1) / threads;
+                ranges.add (() -> {
+                    demux (from, to);
+                    return null;
+                });
+            }
+            reset ();
+        }
+
+        private void demux (int from, int to)
+        {
+            for (int i = from; i < to; i++) {
+                Link link = links [i];
+                link.demux.demux (src [i], link.dst);
+                link.frames += DST_SIZE;
+            }
+        }
+
+        /** Demultiplexes one SRC_SIZE block of every link, src [link]; returns when all links are done */
+        void demux (byte[][] src)
+        {
+            if (src.length != links.length) {
+                throw new IllegalArgumentException ("Expected " + links.length + " links, got " + src.length);
+            }
+            this.src = src;                                                      // published by the submission
+            if (ranges.size () == 1) {
+                demux (0, links.length);
+                return;
+            }
+            try {
+                for (Future<Void> f : pool.invokeAll (ranges)) {
+                    f.get ();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread ().interrupt ();
+                throw new IllegalStateException ("Interrupted while demultiplexing", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException ("Demultiplexing failed", e.getCause ());
+            }
+        }
+
+        byte[][] dst (int link)
+        {
+            return links [link].dst;
+        }
+
+        long frames (int link)
+        {
+            return links [link].frames;
+        }
+
+        long frames ()
+        {
+            long frames = 0;
+            for (Link link : links) frames += link.frames;
+            return frames;
+        }
+
+        /** Since construction or the last reset () */
+        double frames_per_second (int link)
+        {
+            return links [link].frames * 1e9 / (System.nanoTime () - start);
+        }
+
+        double frames_per_second ()
+        {
+            return frames () * 1e9 / (System.nanoTime () - start);
+        }
+
+        void reset ()
+        {
+            for (Link link : links) link.frames = 0;
+            start = System.nanoTime ();
+        }
+
+        public void close ()
+        {
+            pool.shutdown ();
+        }
+    }
+
+    /** Runs whichever of implementations () is fastest on this CPU and JVM. The candidates are checked against
+      * Reference and timed on the first start; the winner is stored in a properties file under the CPU model
+      * and JVM version, so later starts load it and go straight to the chosen kernel.
+      */
+    static final class AdaptiveDemux implements Demux
+    {
+        static final Path PROFILE = Paths.get (System.getProperty ("E1.profile",
+                                               System.getProperty ("user.home") + "/.e1-demux.properties"));
+
+        private final Demux demux;
+        private final boolean calibrated;
+
+        AdaptiveDemux ()
+        {
+            this (PROFILE, false);
+        }
+
+        AdaptiveDemux (Path profile, boolean verbose)
+        {
+            Properties choices = new Properties ();
+            if (Files.isReadable (profile)) {
+                try (java.io.Reader in = Files.newBufferedReader (profile)) {
+                    choices.load (in);
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println ("Ignoring unreadable profile " + profile + ": " + e);
+                }
+            }
+            String key = key ();
+            Demux chosen = null;
+            String name = choices.getProperty (key);
+            if (name != null) {
+                try {
+                    chosen = find (name);
+                    check (chosen);
+                } catch (RuntimeException e) {
+                    chosen = null;                                               // stale or broken entry: recalibrate
+                }
+            }
+            calibrated = chosen == null;
+            if (chosen == null) {
+                chosen = calibrate (verbose);
+                choices.setProperty (key, chosen.getClass ().getSimpleName ());
+                try (java.io.Writer out = Files.newBufferedWriter (profile)) {
+                    choices.store (out, "E1 AdaptiveDemux choices");
+                } catch (IOException e) {
+                    System.err.println ("Cannot store profile " + profile + ": " + e);
+                }
+            }
+            demux = chosen;
+        }
+
+        /** Every candidate that passes the check is timed */
+        static Demux calibrate (boolean verbose)
+        {
+            List<Demux> kernels = new ArrayList<Demux> ();
+            List<String> names = new ArrayList<String> ();
+            for (Demux demux : implementations ()) {
+                try {
+                    check (demux);
+                } catch (RuntimeException e) {
+                    continue;
+                }
+                kernels.add (demux);
+                names.add (demux.getClass ().getSimpleName ());
+            }
+            Demux[] candidates = kernels.toArray (new Demux [0]);
+            return candidates [fastest (candidates, names.toArray (new String [0]), NUM_TIMESLOTS, DST_SIZE, verbose)];
+        }
+
+        static String key ()
+        {
+            return cpu_model () + " / " + System.getProperty ("java.vm.name") + " " + Runtime.version ();
+        }
+
+        static String cpu_model ()
+        {
+            try {
+                for (String line : Files.readAllLines (Paths.get ("/proc/cpuinfo"))) {
+                    if (line.startsWith ("model name")) {
+                        return line.substring (line.indexOf (':') + 1).trim ();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // not Linux; fall back to what the JVM knows
+            }
+            String id = System.getenv ("PROCESSOR_IDENTIFIER");
+            return id != null ? id : System.getProperty ("os.arch") + " " + System.getProperty ("os.name");
+        }
+
+        public void demux (byte[] src, byte[][] dst)
+        {
+            demux.demux (src, dst);
+        }
+
+        Demux chosen ()
+        {
+            return demux;
+        }
+
+        /** True if this instance ran the calibration, false if the choice came from the profile */
+        boolean calibrated ()
+        {
+            return calibrated;
+        }
+    }
+
+    /** Capture, demux, G.711 decode and sink as four threads around one ring of preallocated Blocks. Every stage
+      * owns a sequence and works on the slots its predecessor has finished (the Disruptor layout): nothing is copied
+      * between stages and nothing is allocated once running. A stage takes all slots that are ready, up to batch,
+      * and publishes its sequence once for all of them. Capture waits for the sink when the ring is full, so a slow
+      * stage throttles the input instead of losing blocks. A block is SRC_SIZE bytes, four whole multiframes.
+      * An exception in any stage stops all of them and is rethrown by drain () and close ().
+      */
+    static final class Pipeline implements AutoCloseable
+    {
+        static final class Block
+        {
+            long seq;
+            int link;
+            long captured;                                                       // System.nanoTime () after capture
+            final byte[] src = new byte [SRC_SIZE];
+            final byte[][] dst = allocate_dst ();
+            final short[][] pcm = new short [NUM_TIMESLOTS][DST_SIZE];
+        }
+
+        interface Source
+        {
+            /** Fills block.src for block.link; false ends the input */
+            boolean capture (Block block);
+        }
+
+        interface Sink
+        {
+            void accept (Block block);
+        }
+
+        private static final class Sequence
+        {
+            private static final VarHandle VALUE;
+            static {
+                try {
+                    VALUE = MethodHandles.lookup ().findVarHandle (Sequence.class, "value", long.class);
+                } catch (ReflectiveOperationException e) {
+                    throw new ExceptionInInitializerError (e);
+                }
+            }
+            long p1, p2, p3, p4, p5, p6, p7;
+            volatile long value = -1;                                            // last slot done by the stage
+            long q1, q2, q3, q4, q5, q6, q7;
+
+            void publish (long seq)
+            {
+                VALUE.setRelease (this, seq);
+            }
+        }
+
+        private final Block[] ring;
+        private final int mask;
+        private final int batch;
+        private final int links;
+        private final Demux demux;
+        private final short[] law;
+        private final Source source;
+        private final Sink sink;
+        private final Sequence captured = new Sequence ();
+        private final Sequence demuxed = new Sequence ();
+        private final Sequence decoded = new Sequence ();
+        private final Sequence consumed = new Sequence ();
+        private final Thread[] threads;
+        private volatile boolean running = true;
+        private volatile Throwable failure = null;                               // the first exception of any stage
+        private volatile long stalls = 0;                                        // written by capture only
+
+        Pipeline (int capacity, int batch, int links, Demux demux, short[] law, Source source, Sink sink)
+        {
+            if (Integer.bitCount (capacity) != 1 || batch <= 0 || batch > capacity || links <= 0) {
+                throw new IllegalArgumentException ("Capacity must be a power of two, batch and links positive");
+            }
+            ring = new Block [capacity];
+            for (int i = 0; i < capacity; i++) ring [i] = new Block ();
+            mask = capacity - 1;
+            this.batch = batch;
+            this.links = links;
+            this.demux = demux;
+            this.law = law;
+            this.source = source;
+            this.sink = sink;
+            threads = new Thread [] {
+                new Thread (this::capture, "E1-capture"),
+                new Thread (() -> stage (captured, demuxed, b -> this.demux.demux (b.src, b.dst)), "E1-demux"),
+                new Thread (() -> stage (demuxed, decoded, this::decode), "E1-decode"),
+                new Thread (() -> stage (decoded, consumed, this.sink::accept), "E1-sink")
+            };
+            for (Thread t : threads) {
+                t.setDaemon (true);
+                t.start ();
+            }
+        }
+
+        /** Spins, then yields, while the sequence is below seq; returns its value, or -1 when closed */
+        private long wait_for (Sequence sequence, long seq)
+        {
+            for (int spins = 0; ; spins++) {
+                long value = sequence.value;
+                if (value >= seq) return value;
+                if (! running) return -1;
+                if (spins < 100) {
+                    Thread.onSpinWait ();
+                } else {
+                    Thread.yield ();
+                }
+            }
+        }
+
+        private void capture ()
+        {
+            try {
+                long next = 0;
+                while (running) {
+                    long wrap = next - ring.length;
+                    if (consumed.value < wrap) {
+                        ++ stalls;
+                        if (wait_for (consumed, wrap) < 0) return;
+                    }
+                    Block block = ring [(int) next & mask];
+                    block.seq = next;
+                    block.link = (int) (next % links);
+                    if (! source.capture (block)) break;
+                    block.captured = System.nanoTime ();
+                    captured.publish (next ++);
+                }
+            } catch (Throwable e) {
+                fail (e);
+            }
+        }
+
+        private void stage (Sequence previous, Sequence own, Sink work)
+        {
+            try {
+                long next = 0;
+                while (true) {
+                    long available = wait_for (previous, next);
+                    if (available < 0) return;
+                    long last = Math.min (available, next + batch - 1);
+                    for (long seq = next; seq <= last; seq++) {
+                        work.accept (ring [(int) seq & mask]);
+                    }
+                    own.publish (last);
+                    next = last + 1;
+                }
+            } catch (Throwable e) {
+                fail (e);
+            }
+        }
+
+        /** Keeps the first failure and stops every stage, so that nobody waits for the failed one */
+        private void fail (Throwable e)
+        {
+            synchronized (this) {
+                if (failure == null) failure = e;
+            }
+            running = false;
+        }
+
+        private void decode (Block block)
+        {
+            final short[] table = law;
+            for (int j = 0; j < NUM_TIMESLOTS; j++) {
+                byte[] row = block.dst [j];
+                short[] pcm = block.pcm [j];
+                for (int i = 0; i < DST_SIZE; i++) {
+                    pcm [i] = table [row [i] & 0xFF];
+                }
+            }
+        }
+
+        /** Blocks through the sink so far */
+        long blocks ()
+        {
+            return consumed.value + 1;
+        }
+
+        /** Times capture found the ring full and had to wait */
+        long stalls ()
+        {
+            return stalls;
+        }
+
+        /** Waits until the source has ended and the sink has taken every captured block, then stops the stages;
+          * throws what a stage threw, if any
+          */
+        void drain () throws InterruptedException
+        {
+            threads [0].join ();
+            while (consumed.value < captured.value && failure == null) Thread.yield ();
+            close ();
+        }
+
+        /** Stops the stages and waits for them; throws what a stage threw, if any */
+        public void close ()
+        {
+            running = false;
+            boolean interrupted = false;
+            for (Thread t : threads) {
+                while (t.isAlive ()) {
+                    try {
+                        t.join ();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread ().interrupt ();
+            }
+            Throwable e = failure;
+            if (e instanceof RuntimeException) throw (RuntimeException) e;
+            if (e instanceof Error) throw (Error) e;
+            if (e != null) throw new IllegalStateException ("Pipeline stage failed", e);
+        }
+    }
+
+    /** Hands the voice rows of every demuxed block (TS1-15 and TS17-31 of each link) to consumer tasks that block
+      * on a queue. With one queue per channel every channel has its own task, which is what virtual threads are for;
+      * with one queue per pool thread, a fixed pool of platform threads serves the channels c, c + P, ... of its
+      * queue. Rows come from a fixed number of preallocated Row buffers per queue: publish () waits for a free one
+      * when consumers fall behind, and nothing is allocated while running.
+      */
+    static final class ChannelFanout implements AutoCloseable
+    {
+        static final int VOICE_CHANNELS = NUM_TIMESLOTS - 2;
+
+        static final class Row
+        {
+            int link;
+            int timeslot;
+            long published;                                                      // System.nanoTime () at publish
+            final byte[] data = new byte [DST_SIZE];
+        }
+
+        interface Processor
+        {
+            /** Called on the queue's consumer thread; row is reused once this returns */
+            void process (int queue, Row row);
+        }
+
+        private static final Row STOP = new Row ();
+
+        private final BlockingQueue<Row>[] full;
+        private final BlockingQueue<Row>[] free;
+        private final ExecutorService executor;
+        private final boolean virtual;
+        private volatile Throwable failure = null;                               // the first exception of a Processor
+
+        /** Returns Executors.newVirtualThreadPerTaskExecutor (), or null before JDK 21 */
+        static ExecutorService virtual_executor ()
+        {
+            try {
+                return (ExecutorService) Executors.class.getMethod ("newVirtualThreadPerTaskExecutor").invoke (null);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        /** One queue and one virtual thread per channel; a platform thread per channel where there are none */
+        static ChannelFanout per_channel (int links, int depth, Processor processor)
+        {
+            ExecutorService executor = virtual_executor ();
+            boolean virtual = executor != null;
+            if (! virtual) {
+                executor = Executors.newCachedThreadPool (daemon ("E1-channel"));
+            }
+            return new ChannelFanout (links * VOICE_CHANNELS, depth, executor, virtual, processor);
+        }
+
+        /** threads platform threads, each with one queue for its share of the channels */
+        static ChannelFanout pool (int links, int threads, int depth, Processor processor)
+        {
+            int per_queue = (links * VOICE_CHANNELS + threads - 1) / threads;
+            return new ChannelFanout (threads, depth * per_queue, Executors.newFixedThreadPool (threads, daemon ("E1-pool")),
+                                      false, processor);
+        }
+
+        private static java.util.concurrent.ThreadFactory daemon (String name)
+        {
+            return r -> {
+                Thread t = new Thread (r, name);
+                t.setDaemon (true);
+                return t;
+            };
+        }
+
+        @SuppressWarnings ({"unchecked", "rawtypes"})
+        private ChannelFanout (int queues, int rows, ExecutorService executor, boolean virtual, Processor processor)
+        {
+            full = new BlockingQueue [queues];
+            free = new BlockingQueue [queues];
+            this.executor = executor;
+            this.virtual = virtual;
+            for (int q = 0; q < queues; q++) {
+                full [q] = new ArrayBlockingQueue<Row> (rows + 1);
+                free [q] = new ArrayBlockingQueue<Row> (rows);
+                for (int i = 0; i < rows; i++) free [q].add (new Row ());
+            }
+            for (int q = 0; q < queues; q++) {
+                int queue = q;
+                executor.execute (() -> consume (queue, processor));
+            }
+        }
+
+        /** After a Processor has thrown, rows are still taken and given back unprocessed, so that publish () never
+          * waits for a consumer that is gone; publish () and close () throw the failure instead.
+          */
+        private void consume (int queue, Processor processor)
+        {
+            try {
+                while (true) {
+                    Row row = full [queue].take ();
+                    if (row == STOP) return;
+                    if (failure == null) {
+                        try {
+                            processor.process (queue, row);
+                        } catch (Throwable e) {
+                            synchronized (this) {
+                                if (failure == null) failure = e;
+                            }
+                        }
+                    }
+                    free [queue].put (row);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread ().interrupt ();
+            }
+        }
+
+        private void rethrow ()
+        {
+            Throwable e = failure;
+            if (e instanceof RuntimeException) throw (RuntimeException) e;
+            if (e instanceof Error) throw (Error) e;
+            if (e != null) throw new IllegalStateException ("Channel consumer failed", e);
+        }
+
+        int queues ()
+        {
+            return full.length;
+        }
+
+        /** True if the consumers are virtual threads */
+        boolean virtual ()
+        {
+            return virtual;
+        }
+
+        /** Copies the voice rows of one demuxed block of the link to their queues */
+        void publish (int link, byte[][] dst) throws InterruptedException
+        {
+            rethrow ();
+            long now = System.nanoTime ();
+            int channel = link * VOICE_CHANNELS;
+            for (int j = 1; j < NUM_TIMESLOTS; j++) {
+                if (j == 16) continue;
+                int queue = channel ++ % full.length;
+                Row row = free [queue].take ();
+                row.link = link;
+                row.timeslot = j;
+                row.published = now;
+                System.arraycopy (dst [j], 0, row.data, 0, DST_SIZE);
+                full [queue].put (row);
+            }
+        }
+
+        /** Lets the consumers finish the rows already published, then stops them; throws what a Processor threw */
+        public void close ()
+        {
+            for (BlockingQueue<Row> q : full) q.add (STOP);                      // always room: one more than the rows
+            executor.shutdown ();
+            boolean interrupted = false;
+            boolean stopped = false;
+            while (! stopped) {
+                try {
+                    stopped = executor.awaitTermination (1, TimeUnit.MINUTES);
+                    if (! stopped) {
+                        throw new IllegalStateException ("Channel consumers did not stop");
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread ().interrupt ();
+            }
+            rethrow ();
+        }
+    }
+
+    public static void main (String [] args) throws IOException, InterruptedException
     {
-//      measure (new Reference ());
-//      measure (new Src_First_1 ());
-//      measure (new Src_First_2 ());
-//      measure (new Src_First_3 ());
-//      measure (new Dst_First_1 ());
-//      measure (new Dst_First_2 ());
-//      measure (new Dst_First_3 ());
-//      measure (new Unrolled_1 ());
-//      measure (new Unrolled_2_Full ());
-//      measure (new Unrolled_3 ());
-//      measure (new Unrolled_4 ());
-//      measure (new Unrolled_1_2 ());
-//      measure (new Unrolled_1_4 ());
-//      measure (new Unrolled_1_8 ());
-        measure (new Unrolled_1_16 ());
+        if (args.length > 0 && args[0].equals ("-file")) {
+            if (args.length < 3) {
+                System.err.println ("Usage: java E1 -file <capture> <output-dir> [window-MB]");
+                System.exit (1);
+            }
+            demux_file (Paths.get (args[1]), Paths.get (args[2]), args.length > 3 ? Integer.parseInt (args[3]) : WINDOW_MB);
+            return;
+        }
+        Map<String, Runnable> benchmarks = benchmarks ();
+        if (args.length > 0) {
+            for (String name : args) {
+                Runnable benchmark = benchmarks.get (name);
+                if (benchmark == null) {
+                    throw new IllegalArgumentException ("Unknown implementation: " + name);
+                }
+                benchmark.run ();
+            }
+            return;
+        }
+        for (String name : benchmarks.keySet ()) {
+            for (int i = 0; i < FORKS; i++) {
+                fork (name);
+            }
+        }
     }
 }
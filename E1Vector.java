@@ -0,0 +1,212 @@
+/**  Vector API demultiplexers for E1 streams
+  *
+  *  Kept apart from E1.java because it needs the incubator module:
+  *      javac --add-modules jdk.incubator.vector E1.java E1Vector.java
+  *      java  --add-modules jdk.incubator.vector E1
+  *  E1.vector (), E1.mux_vector () and E1.buffer_vector () fall back to Unrolled_1_16, Mux_Swar_8x8 and
+  *  Buffer_Swar_8x8 when the module is not present; the implementation lists then leave the vector kernels out.
+  *
+  *    Added Vector_Unzip:        32 vectors deinterleaved by five levels of two-vector unzip (even/odd rearrange)
+  *    Added Buffer_Vector_Unzip: Vector_Unzip with direct ByteBuffer source and destinations
+  *    Added Mux_Vector_Zip:      Vector_Unzip in reverse: five levels of two-vector zip
+  */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+final class E1Vector
+{
+    private static final VectorSpecies<Byte> SPECIES = species ();
+    private static final int VLEN = SPECIES.length ();
+    private static final VectorShuffle<Byte> EVEN = VectorShuffle.fromOp (SPECIES, i -> (2 * i) % VLEN);
+    private static final VectorShuffle<Byte> ODD  = VectorShuffle.fromOp (SPECIES, i -> (2 * i + 1) % VLEN);
+    private static final VectorMask<Byte> HIGH = VectorMask.fromLong (SPECIES, -1L << (VLEN / 2));
+    private static final VectorShuffle<Byte> ZIP_LO = VectorShuffle.fromOp (SPECIES, i -> i / 2);
+    private static final VectorShuffle<Byte> ZIP_HI = VectorShuffle.fromOp (SPECIES, i -> VLEN / 2 + i / 2);
+    private static final VectorMask<Byte> ODD_LANES = VectorMask.fromLong (SPECIES, 0xAAAAAAAAAAAAAAAAL);
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder ();
+
+    private static VectorSpecies<Byte> species ()
+    {
+        int bits = Integer.getInteger ("E1.vector.bits", ByteVector.SPECIES_PREFERRED.vectorBitSize ());
+        return VectorSpecies.of (byte.class, VectorShape.forBitSize (Math.max (128, Math.min (512, bits))));
+    }
+
+    private static ByteVector even (ByteVector a, ByteVector b)
+    {
+        return a.rearrange (EVEN).blend (b.rearrange (EVEN), HIGH);
+    }
+
+    private static ByteVector odd (ByteVector a, ByteVector b)
+    {
+        return a.rearrange (ODD).blend (b.rearrange (ODD), HIGH);
+    }
+
+    /** a0 b0 a1 b1 ... from the low halves of a and b */
+    private static ByteVector zip_lo (ByteVector a, ByteVector b)
+    {
+        return a.rearrange (ZIP_LO).blend (b.rearrange (ZIP_LO), ODD_LANES);
+    }
+
+    private static ByteVector zip_hi (ByteVector a, ByteVector b)
+    {
+        return a.rearrange (ZIP_HI).blend (b.rearrange (ZIP_HI), ODD_LANES);
+    }
+
+    /** One zip level, the inverse of unzip: vectors i and i+16 of in go to vectors 2i and 2i+1 of out */
+    private static void zip (byte[] in, byte[] out, int out_pos)
+    {
+        for (int i = 0; i < 16; i++) {
+            ByteVector a = ByteVector.fromArray (SPECIES, in, VLEN * i);
+            ByteVector b = ByteVector.fromArray (SPECIES, in, VLEN * (i + 16));
+            zip_lo (a, b).intoArray (out, out_pos + VLEN * (2 * i));
+            zip_hi (a, b).intoArray (out, out_pos + VLEN * (2 * i + 1));
+        }
+    }
+
+    /** The first zip level reads timeslots i and i+16 straight from the rows */
+    private static void zip (byte[][] src, int src_pos, byte[] out)
+    {
+        for (int i = 0; i < 16; i++) {
+            ByteVector a = ByteVector.fromArray (SPECIES, src[i], src_pos);
+            ByteVector b = ByteVector.fromArray (SPECIES, src[i + 16], src_pos);
+            zip_lo (a, b).intoArray (out, VLEN * (2 * i));
+            zip_hi (a, b).intoArray (out, VLEN * (2 * i + 1));
+        }
+    }
+
+    /** One unzip level: vectors 2i and 2i+1 of in go to vectors i (even lanes) and i+16 (odd lanes) of out */
+    private static void unzip (byte[] in, int in_pos, byte[] out)
+    {
+        for (int i = 0; i < 16; i++) {
+            ByteVector a = ByteVector.fromArray (SPECIES, in, in_pos + VLEN * (2 * i));
+            ByteVector b = ByteVector.fromArray (SPECIES, in, in_pos + VLEN * (2 * i + 1));
+            even (a, b).intoArray (out, VLEN * i);
+            odd (a, b).intoArray (out, VLEN * (i + 16));
+        }
+    }
+
+    private static void unzip (ByteBuffer in, int in_pos, byte[] out)
+    {
+        for (int i = 0; i < 16; i++) {
+            ByteVector a = ByteVector.fromByteBuffer (SPECIES, in, in_pos + VLEN * (2 * i), ORDER);
+            ByteVector b = ByteVector.fromByteBuffer (SPECIES, in, in_pos + VLEN * (2 * i + 1), ORDER);
+            even (a, b).intoArray (out, VLEN * i);
+            odd (a, b).intoArray (out, VLEN * (i + 16));
+        }
+    }
+
+    /** The last level: vectors i and i+16 are timeslots i and i+16 and go straight to dst */
+    private static void unzip (byte[] in, byte[][] dst, int dst_pos)
+    {
+        for (int i = 0; i < 16; i++) {
+            ByteVector a = ByteVector.fromArray (SPECIES, in, VLEN * (2 * i));
+            ByteVector b = ByteVector.fromArray (SPECIES, in, VLEN * (2 * i + 1));
+            even (a, b).intoArray (dst[i], dst_pos);
+            odd (a, b).intoArray (dst[i + 16], dst_pos);
+        }
+    }
+
+    private static void unzip (byte[] in, ByteBuffer[] dst, int dst_pos)
+    {
+        for (int i = 0; i < 16; i++) {
+            ByteVector a = ByteVector.fromArray (SPECIES, in, VLEN * (2 * i));
+            ByteVector b = ByteVector.fromArray (SPECIES, in, VLEN * (2 * i + 1));
+            even (a, b).intoByteBuffer (dst[i], dst_pos, ORDER);
+            odd (a, b).intoByteBuffer (dst[i + 16], dst_pos, ORDER);
+        }
+    }
+
+    /** Not thread-safe: the intermediate levels live in per-instance scratch buffers */
+    static final class Vector_Unzip implements E1.Demux
+    {
+        private final byte[] s0 = new byte [32 * VLEN];
+        private final byte[] s1 = new byte [32 * VLEN];
+
+        public void demux (byte[] src, byte[][] dst)
+        {
+            assert E1.NUM_TIMESLOTS == 32;
+            assert src.length % E1.NUM_TIMESLOTS == 0;
+
+            int dst_size = src.length / 32;
+            int dst_pos = 0;
+            for (; dst_pos + VLEN <= dst_size; dst_pos += VLEN) {
+                unzip (src, dst_pos * 32, s0);
+                unzip (s0, 0, s1);
+                unzip (s1, 0, s0);
+                unzip (s0, 0, s1);
+                unzip (s1, dst, dst_pos);
+            }
+            for (int j = 0; j < 32; j++) {
+                byte[] d = dst[j];
+                for (int pos = dst_pos; pos < dst_size; pos++) {
+                    d[pos] = src[pos * 32 + j];
+                }
+            }
+        }
+    }
+
+    /** Not thread-safe: the intermediate levels live in per-instance scratch buffers */
+    static final class Buffer_Vector_Unzip implements E1.BufferDemux
+    {
+        private final byte[] s0 = new byte [32 * VLEN];
+        private final byte[] s1 = new byte [32 * VLEN];
+
+        public void demux (ByteBuffer src, ByteBuffer[] dst)
+        {
+            assert E1.NUM_TIMESLOTS == 32;
+            assert src.limit () % E1.NUM_TIMESLOTS == 0;
+
+            int dst_size = src.limit () / 32;
+            int dst_pos = 0;
+            for (; dst_pos + VLEN <= dst_size; dst_pos += VLEN) {
+                unzip (src, dst_pos * 32, s0);
+                unzip (s0, 0, s1);
+                unzip (s1, 0, s0);
+                unzip (s0, 0, s1);
+                unzip (s1, dst, dst_pos);
+            }
+            for (int j = 0; j < 32; j++) {
+                ByteBuffer d = dst[j];
+                for (int pos = dst_pos; pos < dst_size; pos++) {
+                    d.put (pos, src.get (pos * 32 + j));
+                }
+            }
+        }
+    }
+
+    /** Not thread-safe: the intermediate levels live in per-instance scratch buffers */
+    static final class Mux_Vector_Zip implements E1.Mux
+    {
+        private final byte[] s0 = new byte [32 * VLEN];
+        private final byte[] s1 = new byte [32 * VLEN];
+
+        public void mux (byte[][] src, byte[] dst)
+        {
+            assert E1.NUM_TIMESLOTS == 32;
+            assert dst.length % E1.NUM_TIMESLOTS == 0;
+
+            int src_size = dst.length / 32;
+            int src_pos = 0;
+            for (; src_pos + VLEN <= src_size; src_pos += VLEN) {
+                zip (src, src_pos, s0);
+                zip (s0, s1, 0);
+                zip (s1, s0, 0);
+                zip (s0, s1, 0);
+                zip (s1, dst, src_pos * 32);
+            }
+            for (int j = 0; j < 32; j++) {
+                byte[] s = src[j];
+                for (int pos = src_pos; pos < src_size; pos++) {
+                    dst[pos * 32 + j] = s[pos];
+                }
+            }
+        }
+    }
+}